@@ -0,0 +1,178 @@
+package hardcore;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/*
+    the lock free request/drain protocol shared by every array backed publisher
+
+    - "requested" is an atomic counter, request() only adds to it (capped at Long.MAX_VALUE)
+    - "wip" (work in progress) elects a single draining thread, the others just increment
+      it to tell the drainer it "missed" something and return immediately
+    - the drainer loops until it has consumed every missed signal
+
+    subclasses only know how to push their own kind of array into their own kind of subscriber,
+    see emit() and fastPath()
+ */
+abstract class AbstractArraySubscription implements Subscription {
+    // exclusive, "index" walks from the first element up to it
+    final int end;
+    final Subscriber<?> downstream;
+
+    // only touched by the thread that won wip
+    int index;
+
+    volatile boolean cancelled;
+
+    volatile Throwable badRequest;
+
+    volatile long requested;
+    static final AtomicLongFieldUpdater<AbstractArraySubscription> REQUESTED =
+            AtomicLongFieldUpdater.newUpdater(AbstractArraySubscription.class, "requested");
+
+    volatile int wip;
+    static final AtomicIntegerFieldUpdater<AbstractArraySubscription> WIP =
+            AtomicIntegerFieldUpdater.newUpdater(AbstractArraySubscription.class, "wip");
+
+    AbstractArraySubscription(int length, Subscriber<?> downstream) {
+        this(0, length, downstream);
+    }
+
+    // only emit the [from, end) range of the array
+    AbstractArraySubscription(int from, int end, Subscriber<?> downstream) {
+        this.index = from;
+        this.end = end;
+        this.downstream = downstream;
+    }
+
+    /*
+        emit at most r elements starting at "index", move "index" past what was consumed
+        and return how many elements count against the demand,
+        or -1 if a terminal signal was sent (error / cancellation)
+     */
+    abstract long emit(long r);
+
+    /*
+        request(Long.MAX_VALUE): no more accounting, emit everything from "index" and complete
+     */
+    abstract void fastPath();
+
+    /*
+        whether request(Long.MAX_VALUE) may switch to fastPath(), subclasses that must keep
+        bounding the emission (for something else than the demand) answer false
+        and get emit(Long.MAX_VALUE) calls instead
+     */
+    boolean fastPathEnabled() {
+        return true;
+    }
+
+    @Override
+    public void request(long n) {
+        if (n <= 0) {
+            // rule 3.9: the error is delivered by the drain loop so it never overlaps an onNext
+            badRequest = new IllegalArgumentException("rule 3.9 violated: positive request amount required but it was " + n);
+        } else if (addCap(this, n) == Long.MAX_VALUE) {
+            // already unbounded, the fast path is (or was) running
+            return;
+        }
+        drain();
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+    }
+
+    void drain() {
+        // reentrant / concurrent callers only mark the missed work
+        if (WIP.getAndIncrement(this) != 0) {
+            return;
+        }
+        int missed = 1;
+
+        for (;;) {
+            if (cancelled) {
+                return;
+            }
+            Throwable ex = badRequest;
+            if (ex != null) {
+                fail(ex);
+                return;
+            }
+
+            long r = requested;
+            if (r == Long.MAX_VALUE && fastPathEnabled()) {
+                fastPath();
+                return;
+            }
+
+            long e = emit(r);
+            if (e < 0L) {
+                return;
+            }
+
+            // complete as soon as the array is exhausted, whatever the demand pattern was
+            if (index == end) {
+                complete();
+                return;
+            }
+
+            if (e != 0L) {
+                produced(this, e);
+            }
+            missed = WIP.addAndGet(this, -missed);
+            if (missed == 0) {
+                return;
+            }
+        }
+    }
+
+    void complete() {
+        if (!cancelled) {
+            cancelled = true;
+            downstream.onComplete();
+        }
+    }
+
+    void fail(Throwable ex) {
+        cancelled = true;
+        downstream.onError(ex);
+    }
+
+    void nullElement(int i) {
+        fail(new NullPointerException("array element at index " + i + " is null"));
+    }
+
+    // add n to requested, saturating at Long.MAX_VALUE, returns the previous value
+    static long addCap(AbstractArraySubscription sub, long n) {
+        for (;;) {
+            long r = sub.requested;
+            if (r == Long.MAX_VALUE) {
+                return Long.MAX_VALUE;
+            }
+            long u = r + n;
+            if (u < 0L) {
+                u = Long.MAX_VALUE;
+            }
+            if (REQUESTED.compareAndSet(sub, r, u)) {
+                return r;
+            }
+        }
+    }
+
+    // subtract what was emitted unless the demand went unbounded in the meantime
+    static void produced(AbstractArraySubscription sub, long e) {
+        for (;;) {
+            long r = sub.requested;
+            if (r == Long.MAX_VALUE) {
+                return;
+            }
+            if (REQUESTED.compareAndSet(sub, r, r - e)) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package hardcore;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+
+/*
+    batch mode of ArrayPublisherThreadSafe: one onNext per chunk instead of one per element
+
+    each onNext carries an ArraySlice, a zero copy window over the backing array of at most chunkSize elements.
+    the demand is counted either
+    - in BATCHES: request(n) means n slices of up to chunkSize elements
+    - in ELEMENTS: request(n) means n elements, a slice never goes past the outstanding demand
+      so request(3) with chunkSize 100 gets a slice of 3
+
+    elements are not null checked, a slice is handed over as is
+ */
+public class ArrayBatchPublisher<T> implements Publisher<ArraySlice<T>> {
+
+    public enum Demand {
+        BATCHES,
+        ELEMENTS
+    }
+
+    private final T[] array;
+    private final int chunkSize;
+    private final Demand demand;
+
+    public ArrayBatchPublisher(T[] array, int chunkSize) {
+        this(array, chunkSize, Demand.BATCHES);
+    }
+
+    public ArrayBatchPublisher(T[] array, int chunkSize, Demand demand) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive but it was " + chunkSize);
+        }
+        this.array = array;
+        this.chunkSize = chunkSize;
+        this.demand = demand;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super ArraySlice<T>> mySub) {
+        ArrayBatchSubscription<T> subscription = new ArrayBatchSubscription<>(array, chunkSize, demand, mySub);
+        mySub.onSubscribe(subscription);
+        if (array.length == 0) {
+            subscription.drain();
+        }
+    }
+
+    // "index" is an element index, "requested" is in batches or in elements depending on the mode
+    static final class ArrayBatchSubscription<T> extends AbstractArraySubscription {
+        final T[] array;
+        final int chunkSize;
+        final boolean countElements;
+        final Subscriber<? super ArraySlice<T>> actual;
+
+        ArrayBatchSubscription(T[] array, int chunkSize, Demand demand, Subscriber<? super ArraySlice<T>> actual) {
+            super(array.length, actual);
+            this.array = array;
+            this.chunkSize = chunkSize;
+            this.countElements = demand == Demand.ELEMENTS;
+            this.actual = actual;
+        }
+
+        @Override
+        long emit(long r) {
+            final int len = end;
+            final int chunk = chunkSize;
+            final Subscriber<? super ArraySlice<T>> s = actual;
+            int i = index;
+            long e = 0L;
+            while (e != r && i != len) {
+                if (cancelled) {
+                    return -1L;
+                }
+                int n = Math.min(chunk, len - i);
+                if (countElements) {
+                    n = (int) Math.min(n, r - e);
+                    e += n;
+                } else {
+                    e++;
+                }
+                s.onNext(new ArraySlice<>(array, i, n));
+                i += n;
+            }
+            index = i;
+            return e;
+        }
+
+        @Override
+        void fastPath() {
+            final int len = end;
+            final int chunk = chunkSize;
+            final Subscriber<? super ArraySlice<T>> s = actual;
+            for (int i = index; i != len; ) {
+                if (cancelled) {
+                    return;
+                }
+                int n = Math.min(chunk, len - i);
+                s.onNext(new ArraySlice<>(array, i, n));
+                i += n;
+            }
+            complete();
+        }
+    }
+}
@@ -3,6 +3,7 @@ package hardcore;
 import org.reactivestreams.Publisher;
 import org.reactivestreams.Subscriber;
 import org.reactivestreams.Subscription;
+import reactor.core.Fuseable;
 
 /*
     implement
@@ -12,22 +13,42 @@ import org.reactivestreams.Subscription;
     https://codeburst.io/reactive-streams-are-so-simple-4105378f4c59
 
  */
-public class ArrayPublisherThreadSafe<T> implements Publisher<T> {
+public class ArrayPublisherThreadSafe<T> implements Publisher<T>, Fuseable {
     private final T[] array;
     public ArrayPublisherThreadSafe(T[] array){
         this.array = array;
     }
     @Override
-    public void subscribe(Subscriber mySub) {
+    public void subscribe(Subscriber<? super T> mySub) {
         // when subscriber subscribe the publisher
         // publisher create/give a Subscription back to subscriber
         // this subscription will have race problem
         // the goal is implementing Subscription in thread safe manner
 
-        Subscription subscription  = getThreadSafeSubscription2(mySub);
-        // if mySub call request method in multi-threads will have problem
+        ArraySubscription<T> subscription = getLockFreeSubscription(mySub);
         mySub.onSubscribe(subscription);
+        if (array.length == 0 && !subscription.outputFused) {
+            // nothing to wait demand for, complete right away
+            subscription.drain();
+        }
+    }
+
+    // one onNext per chunk of the array, demand counted in batches
+    public ArrayBatchPublisher<T> batched(int chunkSize) {
+        return new ArrayBatchPublisher<>(array, chunkSize);
+    }
+
+    public ArrayBatchPublisher<T> batched(int chunkSize, ArrayBatchPublisher.Demand demand) {
+        return new ArrayBatchPublisher<>(array, chunkSize, demand);
+    }
 
+    // the array split into contiguous ranges, one rail per range
+    public ParallelArrayPublisher<T> parallel(int parallelism) {
+        return new ParallelArrayPublisher<>(array, parallelism);
+    }
+
+    public ArraySubscription<T> getLockFreeSubscription(Subscriber<? super T> mySub) {
+        return new ArraySubscription<>(array, mySub);
     }
 
     public Subscription getThreadSafeSubscription2(Subscriber mySub){
@@ -131,4 +152,151 @@ public class ArrayPublisherThreadSafe<T> implements Publisher<T> {
         };
         return threadSafeSubscription;
     }
+
+    /*
+        lock free version of getThreadSafeSubscription2
+
+        the synchronized request() holds the monitor while calling onNext, so one slow
+        subscriber blocks every other thread calling request.
+        the request/wip drain loop lives in AbstractArraySubscription, this class only walks the array
+
+        a reactor ConditionalSubscriber (filter for example) is fed through tryOnNext and only
+        the accepted elements count against the demand, so dropped ones need no extra request(1)
+
+        it is also a reactor SynchronousSubscription: when wrapped with Flux.from(...) a fuseable
+        operator (map, filter, ...) negotiates SYNC fusion and then poll()s the array directly,
+        never calling request() nor receiving onNext
+     */
+    public static final class ArraySubscription<T> extends AbstractArraySubscription
+            implements Fuseable.SynchronousSubscription<T> {
+        final T[] array;
+        final Subscriber<? super T> actual;
+        // null when the subscriber cannot tell us whether it kept an element
+        final Fuseable.ConditionalSubscriber<? super T> conditional;
+
+        // set once a downstream negotiated SYNC fusion, it then pulls with poll()
+        boolean outputFused;
+
+        ArraySubscription(T[] array, Subscriber<? super T> actual) {
+            this(array, 0, array.length, actual);
+        }
+
+        ArraySubscription(T[] array, int from, int to, Subscriber<? super T> actual) {
+            super(from, to, actual);
+            this.array = array;
+            this.actual = actual;
+            this.conditional = actual instanceof Fuseable.ConditionalSubscriber
+                    ? (Fuseable.ConditionalSubscriber<? super T>) actual : null;
+        }
+
+        @Override
+        long emit(long r) {
+            if (conditional != null) {
+                return emitConditional(r);
+            }
+            final T[] a = array;
+            final int len = end;
+            final Subscriber<? super T> s = actual;
+            int i = index;
+            long e = 0L;
+            while (e != r && i != len) {
+                if (cancelled) {
+                    return -1L;
+                }
+                T element = a[i];
+                if (element == null) {
+                    nullElement(i);
+                    return -1L;
+                }
+                s.onNext(element);
+                i++;
+                e++;
+            }
+            index = i;
+            return e;
+        }
+
+        long emitConditional(long r) {
+            final T[] a = array;
+            final int len = end;
+            final Fuseable.ConditionalSubscriber<? super T> s = conditional;
+            int i = index;
+            long e = 0L;
+            while (e != r && i != len) {
+                if (cancelled) {
+                    return -1L;
+                }
+                T element = a[i];
+                if (element == null) {
+                    nullElement(i);
+                    return -1L;
+                }
+                if (s.tryOnNext(element)) {
+                    e++;
+                }
+                i++;
+            }
+            index = i;
+            return e;
+        }
+
+        @Override
+        void fastPath() {
+            final T[] a = array;
+            final int len = end;
+            final Subscriber<? super T> s = actual;
+            for (int i = index; i != len; i++) {
+                if (cancelled) {
+                    return;
+                }
+                T element = a[i];
+                if (element == null) {
+                    nullElement(i);
+                    return;
+                }
+                s.onNext(element);
+            }
+            complete();
+        }
+
+        // ---- SYNC fusion: only ever called by the single fused downstream, no request accounting
+
+        @Override
+        public int requestFusion(int requestedMode) {
+            if ((requestedMode & Fuseable.SYNC) != 0) {
+                outputFused = true;
+                return Fuseable.SYNC;
+            }
+            return Fuseable.NONE;
+        }
+
+        @Override
+        public T poll() {
+            int i = index;
+            if (i == end) {
+                return null;
+            }
+            index = i + 1;
+            T element = array[i];
+            if (element == null) {
+                throw new NullPointerException("array element at index " + i + " is null");
+            }
+            return element;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return index == end;
+        }
+
+        @Override
+        public int size() {
+            return end - index;
+        }
+
+        @Override
+        public void clear() {
+            index = end;
+        }
+    }
 }
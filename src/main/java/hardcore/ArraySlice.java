@@ -0,0 +1,44 @@
+package hardcore;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/*
+    zero copy, read only window [offset, offset + length) over an array
+
+    it is a List for the consumers that just want to iterate,
+    and exposes offset()/length()/get(int) for the ones that walk the window by index.
+    set/add/remove throw UnsupportedOperationException (AbstractList defaults)
+ */
+public final class ArraySlice<T> extends AbstractList<T> implements RandomAccess {
+    private final T[] array;
+    private final int offset;
+    private final int length;
+
+    ArraySlice(T[] array, int offset, int length) {
+        this.array = array;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    public int offset() {
+        return offset;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public T get(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index " + index + " out of slice of length " + length);
+        }
+        return array[offset + index];
+    }
+
+    @Override
+    public int size() {
+        return length;
+    }
+}
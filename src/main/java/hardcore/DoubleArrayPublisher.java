@@ -0,0 +1,112 @@
+package hardcore;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import reactor.core.Fuseable;
+
+/*
+    ArrayPublisherThreadSafe over a double[], same backpressure semantics without a Double per element
+
+    subscribers implementing DoubleSubscriber get onNextDouble(double),
+    any other Subscriber<? super Double> falls back to boxing, a reactor ConditionalSubscriber
+    is fed through tryOnNext and only the accepted values count against the demand
+ */
+public class DoubleArrayPublisher implements Publisher<Double> {
+    private final double[] array;
+
+    public DoubleArrayPublisher(double[] array) {
+        this.array = array;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super Double> mySub) {
+        DoubleArraySubscription subscription = new DoubleArraySubscription(array, mySub);
+        mySub.onSubscribe(subscription);
+        if (array.length == 0) {
+            subscription.drain();
+        }
+    }
+
+    static final class DoubleArraySubscription extends AbstractArraySubscription {
+        final double[] array;
+        final Subscriber<? super Double> actual;
+        // null when the subscriber only understands boxed values
+        final DoubleSubscriber primitive;
+        // null when the subscriber cannot tell us whether it kept a value
+        final Fuseable.ConditionalSubscriber<? super Double> conditional;
+
+        DoubleArraySubscription(double[] array, Subscriber<? super Double> actual) {
+            super(array.length, actual);
+            this.array = array;
+            this.actual = actual;
+            this.primitive = actual instanceof DoubleSubscriber ? (DoubleSubscriber) actual : null;
+            this.conditional = primitive == null && actual instanceof Fuseable.ConditionalSubscriber
+                    ? (Fuseable.ConditionalSubscriber<? super Double>) actual : null;
+        }
+
+        @Override
+        long emit(long r) {
+            if (conditional != null) {
+                return emitConditional(r);
+            }
+            final double[] a = array;
+            final int len = a.length;
+            final DoubleSubscriber ps = primitive;
+            final Subscriber<? super Double> s = actual;
+            int i = index;
+            long e = 0L;
+            while (e != r && i != len) {
+                if (cancelled) {
+                    return -1L;
+                }
+                if (ps != null) {
+                    ps.onNextDouble(a[i]);
+                } else {
+                    s.onNext(a[i]);
+                }
+                i++;
+                e++;
+            }
+            index = i;
+            return e;
+        }
+
+        long emitConditional(long r) {
+            final double[] a = array;
+            final int len = a.length;
+            final Fuseable.ConditionalSubscriber<? super Double> s = conditional;
+            int i = index;
+            long e = 0L;
+            while (e != r && i != len) {
+                if (cancelled) {
+                    return -1L;
+                }
+                if (s.tryOnNext(a[i])) {
+                    e++;
+                }
+                i++;
+            }
+            index = i;
+            return e;
+        }
+
+        @Override
+        void fastPath() {
+            final double[] a = array;
+            final int len = a.length;
+            final DoubleSubscriber ps = primitive;
+            final Subscriber<? super Double> s = actual;
+            for (int i = index; i != len; i++) {
+                if (cancelled) {
+                    return;
+                }
+                if (ps != null) {
+                    ps.onNextDouble(a[i]);
+                } else {
+                    s.onNext(a[i]);
+                }
+            }
+            complete();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package hardcore;
+
+import org.reactivestreams.Subscriber;
+
+/*
+    primitive extension of Subscriber<Double>
+
+    DoubleArrayPublisher detects it and calls onNextDouble(double) directly, so nothing gets boxed.
+    a plain Subscriber<Double> still works, it just receives boxed values
+ */
+public interface DoubleSubscriber extends Subscriber<Double> {
+
+    void onNextDouble(double value);
+
+    @Override
+    default void onNext(Double value) {
+        onNextDouble(value);
+    }
+}
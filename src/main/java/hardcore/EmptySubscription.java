@@ -0,0 +1,16 @@
+package hardcore;
+
+import org.reactivestreams.Subscription;
+
+// handed to a subscriber that is about to get an immediate onError (rule 1.9: onSubscribe comes first)
+enum EmptySubscription implements Subscription {
+    INSTANCE;
+
+    @Override
+    public void request(long n) {
+    }
+
+    @Override
+    public void cancel() {
+    }
+}
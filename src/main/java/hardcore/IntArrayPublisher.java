@@ -0,0 +1,112 @@
+package hardcore;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import reactor.core.Fuseable;
+
+/*
+    ArrayPublisherThreadSafe over a int[], same backpressure semantics without a Integer per element
+
+    subscribers implementing IntSubscriber get onNextInt(int),
+    any other Subscriber<? super Integer> falls back to boxing, a reactor ConditionalSubscriber
+    is fed through tryOnNext and only the accepted values count against the demand
+ */
+public class IntArrayPublisher implements Publisher<Integer> {
+    private final int[] array;
+
+    public IntArrayPublisher(int[] array) {
+        this.array = array;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super Integer> mySub) {
+        IntArraySubscription subscription = new IntArraySubscription(array, mySub);
+        mySub.onSubscribe(subscription);
+        if (array.length == 0) {
+            subscription.drain();
+        }
+    }
+
+    static final class IntArraySubscription extends AbstractArraySubscription {
+        final int[] array;
+        final Subscriber<? super Integer> actual;
+        // null when the subscriber only understands boxed values
+        final IntSubscriber primitive;
+        // null when the subscriber cannot tell us whether it kept a value
+        final Fuseable.ConditionalSubscriber<? super Integer> conditional;
+
+        IntArraySubscription(int[] array, Subscriber<? super Integer> actual) {
+            super(array.length, actual);
+            this.array = array;
+            this.actual = actual;
+            this.primitive = actual instanceof IntSubscriber ? (IntSubscriber) actual : null;
+            this.conditional = primitive == null && actual instanceof Fuseable.ConditionalSubscriber
+                    ? (Fuseable.ConditionalSubscriber<? super Integer>) actual : null;
+        }
+
+        @Override
+        long emit(long r) {
+            if (conditional != null) {
+                return emitConditional(r);
+            }
+            final int[] a = array;
+            final int len = a.length;
+            final IntSubscriber ps = primitive;
+            final Subscriber<? super Integer> s = actual;
+            int i = index;
+            long e = 0L;
+            while (e != r && i != len) {
+                if (cancelled) {
+                    return -1L;
+                }
+                if (ps != null) {
+                    ps.onNextInt(a[i]);
+                } else {
+                    s.onNext(a[i]);
+                }
+                i++;
+                e++;
+            }
+            index = i;
+            return e;
+        }
+
+        long emitConditional(long r) {
+            final int[] a = array;
+            final int len = a.length;
+            final Fuseable.ConditionalSubscriber<? super Integer> s = conditional;
+            int i = index;
+            long e = 0L;
+            while (e != r && i != len) {
+                if (cancelled) {
+                    return -1L;
+                }
+                if (s.tryOnNext(a[i])) {
+                    e++;
+                }
+                i++;
+            }
+            index = i;
+            return e;
+        }
+
+        @Override
+        void fastPath() {
+            final int[] a = array;
+            final int len = a.length;
+            final IntSubscriber ps = primitive;
+            final Subscriber<? super Integer> s = actual;
+            for (int i = index; i != len; i++) {
+                if (cancelled) {
+                    return;
+                }
+                if (ps != null) {
+                    ps.onNextInt(a[i]);
+                } else {
+                    s.onNext(a[i]);
+                }
+            }
+            complete();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package hardcore;
+
+import org.reactivestreams.Subscriber;
+
+/*
+    primitive extension of Subscriber<Integer>
+
+    IntArrayPublisher detects it and calls onNextInt(int) directly, so nothing gets boxed.
+    a plain Subscriber<Integer> still works, it just receives boxed values
+ */
+public interface IntSubscriber extends Subscriber<Integer> {
+
+    void onNextInt(int value);
+
+    @Override
+    default void onNext(Integer value) {
+        onNextInt(value);
+    }
+}
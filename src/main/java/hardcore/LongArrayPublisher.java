@@ -0,0 +1,112 @@
+package hardcore;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import reactor.core.Fuseable;
+
+/*
+    ArrayPublisherThreadSafe over a long[], same backpressure semantics without a Long per element
+
+    subscribers implementing LongSubscriber get onNextLong(long),
+    any other Subscriber<? super Long> falls back to boxing, a reactor ConditionalSubscriber
+    is fed through tryOnNext and only the accepted values count against the demand
+ */
+public class LongArrayPublisher implements Publisher<Long> {
+    private final long[] array;
+
+    public LongArrayPublisher(long[] array) {
+        this.array = array;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super Long> mySub) {
+        LongArraySubscription subscription = new LongArraySubscription(array, mySub);
+        mySub.onSubscribe(subscription);
+        if (array.length == 0) {
+            subscription.drain();
+        }
+    }
+
+    static final class LongArraySubscription extends AbstractArraySubscription {
+        final long[] array;
+        final Subscriber<? super Long> actual;
+        // null when the subscriber only understands boxed values
+        final LongSubscriber primitive;
+        // null when the subscriber cannot tell us whether it kept a value
+        final Fuseable.ConditionalSubscriber<? super Long> conditional;
+
+        LongArraySubscription(long[] array, Subscriber<? super Long> actual) {
+            super(array.length, actual);
+            this.array = array;
+            this.actual = actual;
+            this.primitive = actual instanceof LongSubscriber ? (LongSubscriber) actual : null;
+            this.conditional = primitive == null && actual instanceof Fuseable.ConditionalSubscriber
+                    ? (Fuseable.ConditionalSubscriber<? super Long>) actual : null;
+        }
+
+        @Override
+        long emit(long r) {
+            if (conditional != null) {
+                return emitConditional(r);
+            }
+            final long[] a = array;
+            final int len = a.length;
+            final LongSubscriber ps = primitive;
+            final Subscriber<? super Long> s = actual;
+            int i = index;
+            long e = 0L;
+            while (e != r && i != len) {
+                if (cancelled) {
+                    return -1L;
+                }
+                if (ps != null) {
+                    ps.onNextLong(a[i]);
+                } else {
+                    s.onNext(a[i]);
+                }
+                i++;
+                e++;
+            }
+            index = i;
+            return e;
+        }
+
+        long emitConditional(long r) {
+            final long[] a = array;
+            final int len = a.length;
+            final Fuseable.ConditionalSubscriber<? super Long> s = conditional;
+            int i = index;
+            long e = 0L;
+            while (e != r && i != len) {
+                if (cancelled) {
+                    return -1L;
+                }
+                if (s.tryOnNext(a[i])) {
+                    e++;
+                }
+                i++;
+            }
+            index = i;
+            return e;
+        }
+
+        @Override
+        void fastPath() {
+            final long[] a = array;
+            final int len = a.length;
+            final LongSubscriber ps = primitive;
+            final Subscriber<? super Long> s = actual;
+            for (int i = index; i != len; i++) {
+                if (cancelled) {
+                    return;
+                }
+                if (ps != null) {
+                    ps.onNextLong(a[i]);
+                } else {
+                    s.onNext(a[i]);
+                }
+            }
+            complete();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package hardcore;
+
+import org.reactivestreams.Subscriber;
+
+/*
+    primitive extension of Subscriber<Long>
+
+    LongArrayPublisher detects it and calls onNextLong(long) directly, so nothing gets boxed.
+    a plain Subscriber<Long> still works, it just receives boxed values
+ */
+public interface LongSubscriber extends Subscriber<Long> {
+
+    void onNextLong(long value);
+
+    @Override
+    default void onNext(Long value) {
+        onNextLong(value);
+    }
+}
@@ -0,0 +1,384 @@
+package hardcore;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/*
+    streams the records of a (possibly multi gigabyte) file with the backpressure semantics of
+    ArrayPublisherThreadSafe, without ever loading it in a T[]
+
+    - records are either fixed length or prefixed by their length (4 bytes, big endian int)
+    - the file is memory mapped in segments of about segmentSize bytes with FileChannel.map,
+      a segment always starts on a record boundary and always holds whole records
+    - a record is only decoded when there is demand for it
+    - segments are shared by the subscribers reading them and unmapped as soon as the last one moved past
+
+    the ByteBuffer handed to the decoder is a read only view over the mapping, only valid during decode:
+    a segment is force unmapped as soon as every subscriber moved past it, touching a view after that
+    reads unmapped memory and can crash the JVM. a decoder must return something that does not hold the
+    view (a value, a copy). the ByteBuffer factories emit a heap copy of each record for that reason, it
+    may be kept by any downstream operator (publishOn, prefetch queues, collectList...)
+ */
+public class MappedFilePublisher<T> implements Publisher<T> {
+    static final int LENGTH_PREFIXED = -1;
+    static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private final Path path;
+    private final int recordSize;
+    private final int segmentSize;
+    private final Function<ByteBuffer, T> decoder;
+
+    // start offset -> mapped segment, shared by every subscription of this publisher
+    private final Map<Long, Segment> segments = new HashMap<>();
+
+    MappedFilePublisher(Path path, int recordSize, int segmentSize, Function<ByteBuffer, T> decoder) {
+        if (segmentSize <= 0) {
+            throw new IllegalArgumentException("segmentSize must be positive but it was " + segmentSize);
+        }
+        if (recordSize <= 0 && recordSize != LENGTH_PREFIXED) {
+            throw new IllegalArgumentException("recordSize must be positive but it was " + recordSize);
+        }
+        this.path = path;
+        this.recordSize = recordSize;
+        this.segmentSize = segmentSize;
+        this.decoder = decoder;
+    }
+
+    public static <T> MappedFilePublisher<T> fixedLength(Path path, int recordSize, Function<ByteBuffer, T> decoder) {
+        return new MappedFilePublisher<>(path, recordSize, DEFAULT_SEGMENT_SIZE, decoder);
+    }
+
+    public static <T> MappedFilePublisher<T> fixedLength(Path path, int recordSize, int segmentSize, Function<ByteBuffer, T> decoder) {
+        return new MappedFilePublisher<>(path, recordSize, segmentSize, decoder);
+    }
+
+    public static MappedFilePublisher<ByteBuffer> fixedLength(Path path, int recordSize) {
+        return fixedLength(path, recordSize, MappedFilePublisher::copy);
+    }
+
+    public static <T> MappedFilePublisher<T> lengthPrefixed(Path path, Function<ByteBuffer, T> decoder) {
+        return new MappedFilePublisher<>(path, LENGTH_PREFIXED, DEFAULT_SEGMENT_SIZE, decoder);
+    }
+
+    public static <T> MappedFilePublisher<T> lengthPrefixed(Path path, int segmentSize, Function<ByteBuffer, T> decoder) {
+        return new MappedFilePublisher<>(path, LENGTH_PREFIXED, segmentSize, decoder);
+    }
+
+    public static MappedFilePublisher<ByteBuffer> lengthPrefixed(Path path) {
+        return lengthPrefixed(path, MappedFilePublisher::copy);
+    }
+
+    // a heap copy of the record, it stays valid once its segment is unmapped
+    static ByteBuffer copy(ByteBuffer view) {
+        ByteBuffer copy = ByteBuffer.allocate(view.remaining());
+        copy.put(view);
+        // Buffer cast keeps the Java 8 signature
+        ((Buffer) copy).flip();
+        return copy;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super T> mySub) {
+        FileChannel channel;
+        long fileSize;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            fileSize = channel.size();
+        } catch (IOException e) {
+            mySub.onSubscribe(EmptySubscription.INSTANCE);
+            mySub.onError(e);
+            return;
+        }
+        MappedFileSubscription<T> subscription = new MappedFileSubscription<>(this, channel, fileSize, mySub);
+        mySub.onSubscribe(subscription);
+        if (fileSize == 0) {
+            subscription.drain();
+        }
+    }
+
+    // how many segments are mapped right now, for monitoring
+    public synchronized int mappedSegments() {
+        return segments.size();
+    }
+
+    synchronized Segment acquire(FileChannel channel, long start, long size) throws IOException {
+        Segment segment = segments.get(start);
+        if (segment == null) {
+            segment = new Segment(start, channel.map(FileChannel.MapMode.READ_ONLY, start, size));
+            segments.put(start, segment);
+        }
+        segment.refs++;
+        return segment;
+    }
+
+    synchronized void release(Segment segment) {
+        if (--segment.refs == 0) {
+            segments.remove(segment.start);
+            UNMAPPER.accept(segment.buffer);
+        }
+    }
+
+    static final class Segment {
+        final long start;
+        final MappedByteBuffer buffer;
+        final long end;
+        // guarded by the publisher monitor
+        int refs;
+
+        Segment(long start, MappedByteBuffer buffer) {
+            this.start = start;
+            this.buffer = buffer;
+            this.end = start + buffer.capacity();
+        }
+
+        boolean covers(long position, long length) {
+            return position >= start && position + length <= end;
+        }
+    }
+
+    /*
+        same request/wip drain loop as AbstractArraySubscription, the cursor being a file offset.
+        cancellation also goes through the drain loop so the segment and the channel are
+        released by the thread that uses them
+     */
+    static final class MappedFileSubscription<T> implements Subscription {
+        final MappedFilePublisher<T> parent;
+        final FileChannel channel;
+        final long fileSize;
+        final Subscriber<? super T> actual;
+
+        // only touched by the thread that won wip
+        long position;
+        Segment segment;
+        final ByteBuffer header = ByteBuffer.allocate(4);
+
+        volatile boolean cancelled;
+
+        volatile Throwable badRequest;
+
+        volatile long requested;
+        @SuppressWarnings("rawtypes")
+        static final AtomicLongFieldUpdater<MappedFileSubscription> REQUESTED =
+                AtomicLongFieldUpdater.newUpdater(MappedFileSubscription.class, "requested");
+
+        volatile int wip;
+        @SuppressWarnings("rawtypes")
+        static final AtomicIntegerFieldUpdater<MappedFileSubscription> WIP =
+                AtomicIntegerFieldUpdater.newUpdater(MappedFileSubscription.class, "wip");
+
+        MappedFileSubscription(MappedFilePublisher<T> parent, FileChannel channel, long fileSize, Subscriber<? super T> actual) {
+            this.parent = parent;
+            this.channel = channel;
+            this.fileSize = fileSize;
+            this.actual = actual;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                badRequest = new IllegalArgumentException("rule 3.9 violated: positive request amount required but it was " + n);
+            } else {
+                for (;;) {
+                    long r = requested;
+                    long u = r + n < 0L ? Long.MAX_VALUE : r + n;
+                    if (r == Long.MAX_VALUE || REQUESTED.compareAndSet(this, r, u)) {
+                        break;
+                    }
+                }
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            drain();
+        }
+
+        void drain() {
+            if (WIP.getAndIncrement(this) != 0) {
+                return;
+            }
+            int missed = 1;
+            final Subscriber<? super T> s = actual;
+
+            // a terminated drain never gives wip back, so nothing runs after cleanup()
+            for (;;) {
+                if (cancelled) {
+                    cleanup();
+                    return;
+                }
+                Throwable ex = badRequest;
+                if (ex != null) {
+                    fail(ex);
+                    return;
+                }
+
+                long r = requested;
+                long e = 0L;
+                while (e != r && position != fileSize) {
+                    if (cancelled) {
+                        cleanup();
+                        return;
+                    }
+                    T value;
+                    try {
+                        value = parent.decoder.apply(nextRecord());
+                    } catch (Throwable t) {
+                        fail(t);
+                        return;
+                    }
+                    if (value == null) {
+                        fail(new NullPointerException("decoder returned null for the record ending at " + position));
+                        return;
+                    }
+                    s.onNext(value);
+                    e++;
+                }
+
+                if (position == fileSize) {
+                    // a cancel during the last onNext only bumped wip, release here all the same
+                    cleanup();
+                    if (!cancelled) {
+                        s.onComplete();
+                    }
+                    return;
+                }
+
+                // subtract what was emitted unless the demand went unbounded in the meantime
+                while (e != 0L) {
+                    long current = requested;
+                    if (current == Long.MAX_VALUE || REQUESTED.compareAndSet(this, current, current - e)) {
+                        break;
+                    }
+                }
+                missed = WIP.addAndGet(this, -missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        // read only view over the next record, mapping the next segment when needed
+        ByteBuffer nextRecord() throws IOException {
+            final int fixed = parent.recordSize;
+            final int headerSize = fixed == LENGTH_PREFIXED ? 4 : 0;
+            final long pos = position;
+            int length;
+            if (fixed != LENGTH_PREFIXED) {
+                length = fixed;
+            } else if (segment != null && segment.covers(pos, 4)) {
+                length = segment.buffer.getInt((int) (pos - segment.start));
+            } else {
+                ((Buffer) header).clear();
+                while (header.hasRemaining()) {
+                    if (channel.read(header, pos + header.position()) < 0) {
+                        throw new IOException("truncated length prefix at offset " + pos);
+                    }
+                }
+                length = header.getInt(0);
+            }
+            long recordEnd = pos + headerSize + length;
+            if (length < 0 || recordEnd > fileSize) {
+                throw new IOException("truncated or corrupt record at offset " + pos + " (length " + length + ")");
+            }
+            if (segment == null || !segment.covers(pos, headerSize + length)) {
+                map(pos, headerSize + length);
+            }
+            ByteBuffer view = segment.buffer.duplicate();
+            int offset = (int) (pos - segment.start) + headerSize;
+            // Buffer casts keep the Java 8 signatures
+            ((Buffer) view).limit(offset + length);
+            ((Buffer) view).position(offset);
+            position = recordEnd;
+            return view.slice().asReadOnlyBuffer();
+        }
+
+        // the segment size only depends on where it starts, so every subscriber maps the same segments
+        void map(long start, int recordLength) throws IOException {
+            release();
+            long size = parent.segmentSize;
+            if (parent.recordSize != LENGTH_PREFIXED) {
+                size = Math.max(1, size / recordLength) * recordLength;
+            }
+            size = Math.min(Math.max(size, recordLength), fileSize - start);
+            segment = parent.acquire(channel, start, Math.min(size, Integer.MAX_VALUE));
+        }
+
+        void release() {
+            Segment s = segment;
+            if (s != null) {
+                segment = null;
+                parent.release(s);
+            }
+        }
+
+        void fail(Throwable t) {
+            cleanup();
+            actual.onError(t);
+        }
+
+        void cleanup() {
+            release();
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // read only channel, nothing was lost
+            }
+        }
+    }
+
+    /*
+        there is no public way to unmap a MappedByteBuffer:
+        Unsafe.invokeCleaner on Java 9+, the DirectBuffer cleaner on Java 8,
+        otherwise leave it to the garbage collector
+     */
+    static final Consumer<ByteBuffer> UNMAPPER = unmapper();
+
+    static Consumer<ByteBuffer> unmapper() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            Object unsafe = theUnsafe.get(null);
+            return buffer -> {
+                try {
+                    invokeCleaner.invoke(unsafe, buffer);
+                } catch (ReflectiveOperationException ignored) {
+                    // left to the garbage collector
+                }
+            };
+        } catch (ReflectiveOperationException | RuntimeException java8) {
+            return buffer -> {
+                try {
+                    Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                    cleanerMethod.setAccessible(true);
+                    Object cleaner = cleanerMethod.invoke(buffer);
+                    if (cleaner != null) {
+                        cleaner.getClass().getMethod("clean").invoke(cleaner);
+                    }
+                } catch (ReflectiveOperationException | RuntimeException ignored) {
+                    // left to the garbage collector
+                }
+            };
+        }
+    }
+}
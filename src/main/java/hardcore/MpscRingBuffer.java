@@ -0,0 +1,125 @@
+package hardcore;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/*
+    bounded multi producer / single consumer ring buffer
+
+    - producers claim a slot by CASing producerIndex, then publish the element with an ordered (lazySet) write
+    - the single consumer reads the slot, a null slot behind producerIndex means "claimed but not published yet"
+    - producerIndex and consumerIndex sit on their own cache lines (padding through the class hierarchy,
+      Java 8 has no @Contended for application code) so producers and consumer do not false share
+
+    offer() is lock free and may be called from any thread, poll()/clear() only from the consumer
+ */
+public final class MpscRingBuffer<E> extends MpscRingBufferConsumerIndexPad {
+    private final AtomicReferenceArray<E> buffer;
+    private final int mask;
+    private final int capacity;
+
+    public MpscRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive but it was " + capacity);
+        }
+        this.capacity = capacity;
+        int size = 1 << (32 - Integer.numberOfLeadingZeros(capacity - 1));
+        this.buffer = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    // false when the buffer is full
+    public boolean offer(E element) {
+        if (element == null) {
+            throw new NullPointerException("element");
+        }
+        final int cap = capacity;
+        long limit = producerLimit;
+        long p;
+        do {
+            p = producerIndex;
+            if (p >= limit) {
+                // the cached limit is stale, re-read the consumer index (a cache miss we avoid most of the time)
+                limit = consumerIndex + cap;
+                if (p >= limit) {
+                    return false;
+                }
+                producerLimit = limit;
+            }
+        } while (!PRODUCER_INDEX.compareAndSet(this, p, p + 1));
+        buffer.lazySet((int) p & mask, element);
+        return true;
+    }
+
+    // consumer only
+    public E poll() {
+        final long c = consumerIndex;
+        final int offset = (int) c & mask;
+        E e = buffer.get(offset);
+        if (e == null) {
+            if (c == producerIndex) {
+                return null;
+            }
+            // a producer claimed the slot and is about to publish it
+            do {
+                e = buffer.get(offset);
+            } while (e == null);
+        }
+        buffer.lazySet(offset, null);
+        CONSUMER_INDEX.lazySet(this, c + 1);
+        return e;
+    }
+
+    // approximate when called concurrently with offers
+    public boolean isEmpty() {
+        return consumerIndex == producerIndex;
+    }
+
+    // approximate when called concurrently with offers
+    public int size() {
+        long size = producerIndex - consumerIndex;
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    // consumer only
+    public void clear() {
+        while (poll() != null) {
+            // drop everything
+        }
+    }
+}
+
+// ---- field layout: pad | producerIndex, producerLimit | pad | consumerIndex | pad
+
+abstract class MpscRingBufferHeadPad {
+    long p00, p01, p02, p03, p04, p05, p06, p07;
+    long p10, p11, p12, p13, p14, p15, p16;
+}
+
+abstract class MpscRingBufferProducerIndex extends MpscRingBufferHeadPad {
+    volatile long producerIndex;
+    static final AtomicLongFieldUpdater<MpscRingBufferProducerIndex> PRODUCER_INDEX =
+            AtomicLongFieldUpdater.newUpdater(MpscRingBufferProducerIndex.class, "producerIndex");
+    // producers' cached view of consumerIndex + capacity
+    volatile long producerLimit;
+}
+
+abstract class MpscRingBufferProducerIndexPad extends MpscRingBufferProducerIndex {
+    long p20, p21, p22, p23, p24, p25, p26, p27;
+    long p30, p31, p32, p33, p34, p35, p36;
+}
+
+abstract class MpscRingBufferConsumerIndex extends MpscRingBufferProducerIndexPad {
+    volatile long consumerIndex;
+    static final AtomicLongFieldUpdater<MpscRingBufferConsumerIndex> CONSUMER_INDEX =
+            AtomicLongFieldUpdater.newUpdater(MpscRingBufferConsumerIndex.class, "consumerIndex");
+}
+
+abstract class MpscRingBufferConsumerIndexPad extends MpscRingBufferConsumerIndex {
+    long p40, p41, p42, p43, p44, p45, p46, p47;
+    long p50, p51, p52, p53, p54, p55, p56;
+}
@@ -0,0 +1,292 @@
+package hardcore;
+
+import org.reactivestreams.Processor;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import reactor.core.Exceptions;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+    hot source for many producer threads and a single reactive consumer
+
+    unlike a plain Subscriber, onNext()/offer() may be called concurrently from any number of threads:
+    they push into a bounded MpscRingBuffer, the single downstream subscriber is fed by a wip drain loop
+    (same shape as AbstractArraySubscription) that only emits what was requested.
+
+    when the buffer is full the OverflowPolicy decides:
+    - BLOCK: the producer backs off (yield, then park) until there is room, never call it from the consumer thread
+    - DROP_NEWEST: the offered element is dropped
+    - DROP_OLDEST: the oldest buffered element is dropped to make room, the producer takes the consumer role for that
+    - ERROR: the processor terminates with an overflow error
+
+    as a Subscriber it requests Long.MAX_VALUE from its upstream and applies the same policy to it
+ */
+public class MpscRingBufferProcessor<T> implements Processor<T, T> {
+
+    public enum OverflowPolicy {
+        BLOCK,
+        DROP_NEWEST,
+        DROP_OLDEST,
+        ERROR
+    }
+
+    final MpscRingBuffer<T> queue;
+    final OverflowPolicy policy;
+    final LongAdder dropped = new LongAdder();
+
+    volatile Subscription upstream;
+    @SuppressWarnings("rawtypes")
+    static final AtomicReferenceFieldUpdater<MpscRingBufferProcessor, Subscription> UPSTREAM =
+            AtomicReferenceFieldUpdater.newUpdater(MpscRingBufferProcessor.class, Subscription.class, "upstream");
+
+    volatile Subscriber<? super T> actual;
+    @SuppressWarnings("rawtypes")
+    static final AtomicReferenceFieldUpdater<MpscRingBufferProcessor, Subscriber> ACTUAL =
+            AtomicReferenceFieldUpdater.newUpdater(MpscRingBufferProcessor.class, Subscriber.class, "actual");
+
+    volatile boolean done;
+    volatile Throwable error;
+    volatile boolean cancelled;
+
+    volatile long requested;
+    @SuppressWarnings("rawtypes")
+    static final AtomicLongFieldUpdater<MpscRingBufferProcessor> REQUESTED =
+            AtomicLongFieldUpdater.newUpdater(MpscRingBufferProcessor.class, "requested");
+
+    volatile int wip;
+    @SuppressWarnings("rawtypes")
+    static final AtomicIntegerFieldUpdater<MpscRingBufferProcessor> WIP =
+            AtomicIntegerFieldUpdater.newUpdater(MpscRingBufferProcessor.class, "wip");
+
+    public MpscRingBufferProcessor(int capacity, OverflowPolicy policy) {
+        this.queue = new MpscRingBuffer<>(capacity);
+        this.policy = policy;
+    }
+
+    // ---- producer side, any thread
+
+    @Override
+    public void onSubscribe(Subscription s) {
+        if (!UPSTREAM.compareAndSet(this, null, s)) {
+            // rule 2.5: only one upstream
+            s.cancel();
+            return;
+        }
+        if (cancelled) {
+            s.cancel();
+        } else {
+            s.request(Long.MAX_VALUE);
+        }
+    }
+
+    @Override
+    public void onNext(T t) {
+        offer(t);
+    }
+
+    /*
+        true if t was buffered, false if it was dropped (full buffer with DROP_NEWEST / ERROR,
+        or processor already terminated / cancelled)
+     */
+    public boolean offer(T t) {
+        if (t == null) {
+            throw new NullPointerException("rule 2.13: onNext called with null");
+        }
+        if (done || cancelled) {
+            return false;
+        }
+        if (!queue.offer(t) && !overflow(t)) {
+            dropped.increment();
+            return false;
+        }
+        drain();
+        return true;
+    }
+
+    boolean overflow(T t) {
+        switch (policy) {
+            case BLOCK:
+                for (int spins = 0; !queue.offer(t); spins++) {
+                    if (done || cancelled) {
+                        return false;
+                    }
+                    if (spins < 64) {
+                        Thread.yield();
+                    } else {
+                        LockSupport.parkNanos(1_000L);
+                    }
+                }
+                return true;
+            case DROP_OLDEST:
+                for (;;) {
+                    if (done || cancelled) {
+                        return false;
+                    }
+                    // only the thread owning wip may poll, if it is free we become the consumer for a moment
+                    if (WIP.getAndIncrement(this) == 0) {
+                        if (queue.poll() != null) {
+                            dropped.increment();
+                        }
+                        boolean offered = queue.offer(t);
+                        drainLoop();
+                        if (offered) {
+                            return true;
+                        }
+                    } else if (queue.offer(t)) {
+                        return true;
+                    } else {
+                        Thread.yield();
+                    }
+                }
+            case ERROR:
+                onError(Exceptions.failWithOverflow("MpscRingBufferProcessor is full (capacity " + queue.capacity() + ")"));
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        if (t == null) {
+            throw new NullPointerException("rule 2.13: onError called with null");
+        }
+        if (done || cancelled) {
+            return;
+        }
+        error = t;
+        done = true;
+        drain();
+    }
+
+    @Override
+    public void onComplete() {
+        if (done || cancelled) {
+            return;
+        }
+        done = true;
+        drain();
+    }
+
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    public int bufferedCount() {
+        return queue.size();
+    }
+
+    // ---- consumer side
+
+    @Override
+    public void subscribe(Subscriber<? super T> mySub) {
+        if (!ACTUAL.compareAndSet(this, null, mySub)) {
+            mySub.onSubscribe(EmptySubscription.INSTANCE);
+            mySub.onError(new IllegalStateException("MpscRingBufferProcessor allows only a single Subscriber"));
+            return;
+        }
+        mySub.onSubscribe(new Subscription() {
+            @Override
+            public void request(long n) {
+                if (n <= 0) {
+                    MpscRingBufferProcessor.this.onError(new IllegalArgumentException(
+                            "rule 3.9 violated: positive request amount required but it was " + n));
+                    return;
+                }
+                for (;;) {
+                    long r = requested;
+                    long u = r + n < 0L ? Long.MAX_VALUE : r + n;
+                    if (r == Long.MAX_VALUE || REQUESTED.compareAndSet(MpscRingBufferProcessor.this, r, u)) {
+                        break;
+                    }
+                }
+                drain();
+            }
+
+            @Override
+            public void cancel() {
+                cancelled = true;
+                Subscription s = upstream;
+                if (s != null) {
+                    s.cancel();
+                }
+                drain();
+            }
+        });
+        drain();
+    }
+
+    void drain() {
+        if (WIP.getAndIncrement(this) != 0) {
+            return;
+        }
+        drainLoop();
+    }
+
+    // the caller owns wip
+    void drainLoop() {
+        int missed = 1;
+        final MpscRingBuffer<T> q = queue;
+
+        for (;;) {
+            Subscriber<? super T> a = actual;
+            if (a != null) {
+                long r = requested;
+                long e = 0L;
+                while (e != r) {
+                    boolean d = done;
+                    T v = q.poll();
+                    boolean empty = v == null;
+                    if (checkTerminated(d, empty, a)) {
+                        return;
+                    }
+                    if (empty) {
+                        break;
+                    }
+                    a.onNext(v);
+                    e++;
+                }
+                if (e == r && checkTerminated(done, q.isEmpty(), a)) {
+                    return;
+                }
+                // subtract what was emitted unless the demand went unbounded in the meantime
+                while (e != 0L) {
+                    long current = requested;
+                    if (current == Long.MAX_VALUE || REQUESTED.compareAndSet(this, current, current - e)) {
+                        break;
+                    }
+                }
+            }
+            missed = WIP.addAndGet(this, -missed);
+            if (missed == 0) {
+                return;
+            }
+        }
+    }
+
+    // an error is delivered right away, a completion only once the buffer is drained
+    boolean checkTerminated(boolean d, boolean empty, Subscriber<? super T> a) {
+        if (cancelled) {
+            queue.clear();
+            return true;
+        }
+        if (d) {
+            Throwable ex = error;
+            if (ex != null) {
+                queue.clear();
+                a.onError(ex);
+                return true;
+            }
+            if (empty) {
+                a.onComplete();
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,315 @@
+package hardcore;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/*
+    one immutable array shared by many subscribers
+
+    every subscriber still has its own demand, its cursor is just the "index" of its subscription,
+    published (cheaply, once per emitted batch) so slowest()/fastest() can tell how far the
+    active subscribers have got.
+
+    with a maxLead (see lockstep()) no subscriber may get more than maxLead elements ahead of the
+    slowest active one: the source only advances as fast as the slowest consumer, which is what
+    fan-out replication wants.
+    - the slowest cursor ("low") is kept incrementally: lockstep cursors move under the publisher
+      monitor, which counts the subscribers sitting on low and only rescans them when the last one
+      leaves it. O(1) per move, O(subscribers) per step of the slowest cursor
+    - a subscriber stopped by the lead limit flags itself blocked. when low moves, a single non
+      reentrant loop drains the blocked subscribers again and leaves the others alone
+    - a late lockstep subscriber joins at the slowest cursor, not at the start of the array:
+      starting at 0 would hold every other subscriber back until it caught up.
+      it only sees the elements from there on, like a subscriber of a hot source
+ */
+public class MulticastArrayPublisher<T> implements Publisher<T> {
+    private final T[] array;
+    private final int maxLead;
+    private final CopyOnWriteArrayList<CursorSubscription<T>> subscribers = new CopyOnWriteArrayList<>();
+
+    // lockstep only: the slowest active cursor and how many subscribers sit on it, written under the monitor
+    private volatile int low;
+    private int atLow;
+
+    // elects the thread running the wake up loop, the others only mark it missed
+    private final AtomicInteger wakeUpWip = new AtomicInteger();
+
+    // free running, every subscriber goes at its own pace
+    public MulticastArrayPublisher(T[] array) {
+        this(array, Integer.MAX_VALUE);
+    }
+
+    public MulticastArrayPublisher(T[] array, int maxLead) {
+        if (maxLead <= 0) {
+            throw new IllegalArgumentException("maxLead must be positive but it was " + maxLead);
+        }
+        this.array = array;
+        this.maxLead = maxLead;
+    }
+
+    // strict lockstep, element k+1 goes out only once every subscriber got element k
+    public static <T> MulticastArrayPublisher<T> lockstep(T[] array) {
+        return new MulticastArrayPublisher<>(array, 1);
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super T> mySub) {
+        CursorSubscription<T> subscription;
+        if (isLockstep()) {
+            synchronized (this) {
+                if (subscribers.isEmpty()) {
+                    // nobody to keep pace with, a new round starts
+                    low = 0;
+                    atLow = 0;
+                }
+                subscription = new CursorSubscription<>(this, mySub, low);
+                subscribers.add(subscription);
+                subscription.registered = true;
+                atLow++;
+            }
+        } else {
+            subscription = new CursorSubscription<>(this, mySub, 0);
+            subscribers.add(subscription);
+        }
+        mySub.onSubscribe(subscription);
+        if (subscription.index == array.length) {
+            subscription.drain();
+        }
+    }
+
+    // position of the slowest active subscriber, -1 if there is none
+    public int slowest() {
+        int min = -1;
+        for (CursorSubscription<T> s : subscribers) {
+            int c = s.cursor;
+            if (min < 0 || c < min) {
+                min = c;
+            }
+        }
+        return min;
+    }
+
+    // position of the fastest active subscriber, -1 if there is none
+    public int fastest() {
+        int max = -1;
+        for (CursorSubscription<T> s : subscribers) {
+            max = Math.max(max, s.cursor);
+        }
+        return max;
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    public boolean isLockstep() {
+        return maxLead != Integer.MAX_VALUE;
+    }
+
+    // lockstep: the furthest a subscriber may go
+    int limit() {
+        return (int) Math.min(array.length, (long) low + maxLead);
+    }
+
+    // lockstep: publishes a cursor move, true if it moved the slowest cursor
+    synchronized boolean advance(CursorSubscription<T> subscription, int to) {
+        int from = subscription.cursor;
+        subscription.cursor = to;
+        return subscription.registered && from == low && leaveLow();
+    }
+
+    void remove(CursorSubscription<T> subscription) {
+        if (!isLockstep()) {
+            subscribers.remove(subscription);
+            return;
+        }
+        boolean moved;
+        synchronized (this) {
+            if (!subscription.registered) {
+                return;
+            }
+            subscription.registered = false;
+            subscribers.remove(subscription);
+            // the slowest one may just have left
+            moved = subscription.cursor == low && leaveLow();
+        }
+        if (moved) {
+            wakeUp();
+        }
+    }
+
+    // under the monitor, a subscriber left low: rescan once the last one did
+    private boolean leaveLow() {
+        if (--atLow > 0) {
+            return false;
+        }
+        int min = -1;
+        int count = 0;
+        for (CursorSubscription<T> s : subscribers) {
+            int c = s.cursor;
+            if (min < 0 || c < min) {
+                min = c;
+                count = 1;
+            } else if (c == min) {
+                count++;
+            }
+        }
+        if (min < 0) {
+            atLow = 0;
+            return false;
+        }
+        atLow = count;
+        boolean moved = min != low;
+        low = min;
+        return moved;
+    }
+
+    // drains the subscribers blocked on the lead limit, a drain moving low again only marks another round
+    void wakeUp() {
+        if (wakeUpWip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        for (;;) {
+            for (CursorSubscription<T> s : subscribers) {
+                if (s.blocked) {
+                    s.blocked = false;
+                    s.drain();
+                }
+            }
+            missed = wakeUpWip.addAndGet(-missed);
+            if (missed == 0) {
+                return;
+            }
+        }
+    }
+
+    static final class CursorSubscription<T> extends AbstractArraySubscription {
+        final MulticastArrayPublisher<T> parent;
+        final T[] array;
+        final Subscriber<? super T> actual;
+
+        // published copy of "index", for the progress report and the lockstep limit
+        volatile int cursor;
+        @SuppressWarnings("rawtypes")
+        static final AtomicIntegerFieldUpdater<CursorSubscription> CURSOR =
+                AtomicIntegerFieldUpdater.newUpdater(CursorSubscription.class, "cursor");
+
+        // lockstep: stopped by the lead limit with demand left, waiting for the wake up loop
+        volatile boolean blocked;
+
+        // lockstep: counted in the slowest cursor bookkeeping, guarded by the parent monitor
+        boolean registered;
+
+        CursorSubscription(MulticastArrayPublisher<T> parent, Subscriber<? super T> actual, int from) {
+            super(from, parent.array.length, actual);
+            this.parent = parent;
+            this.array = parent.array;
+            this.actual = actual;
+            this.cursor = from;
+        }
+
+        @Override
+        boolean fastPathEnabled() {
+            return !parent.isLockstep();
+        }
+
+        @Override
+        long emit(long r) {
+            final T[] a = array;
+            final boolean lockstep = parent.isLockstep();
+            final Subscriber<? super T> s = actual;
+            int len = lockstep ? parent.limit() : end;
+            int i = index;
+            long e = 0L;
+            boolean moved = false;
+            for (;;) {
+                long before = e;
+                while (e != r && i < len) {
+                    if (cancelled) {
+                        return -1L;
+                    }
+                    T element = a[i];
+                    if (element == null) {
+                        nullElement(i);
+                        return -1L;
+                    }
+                    s.onNext(element);
+                    i++;
+                    e++;
+                }
+                if (!lockstep) {
+                    if (e != 0L) {
+                        CURSOR.lazySet(this, i);
+                    }
+                    break;
+                }
+                if (e != before) {
+                    moved |= parent.advance(this, i);
+                }
+                if (e == r || i == end) {
+                    break;
+                }
+                // stopped by the lead limit: flag first, then check low again, so a move of low is never missed
+                blocked = true;
+                int next = parent.limit();
+                if (next <= len) {
+                    break;
+                }
+                // we were the slowest one, our own progress moved the limit
+                blocked = false;
+                len = next;
+            }
+            index = i;
+            if (moved) {
+                parent.wakeUp();
+            }
+            return e;
+        }
+
+        @Override
+        void fastPath() {
+            final T[] a = array;
+            final int len = end;
+            final Subscriber<? super T> s = actual;
+            for (int i = index; i != len; i++) {
+                if (cancelled) {
+                    return;
+                }
+                T element = a[i];
+                if (element == null) {
+                    nullElement(i);
+                    return;
+                }
+                s.onNext(element);
+                if ((i & 1023) == 0) {
+                    CURSOR.lazySet(this, i + 1);
+                }
+            }
+            CURSOR.lazySet(this, len);
+            complete();
+        }
+
+        @Override
+        void complete() {
+            super.complete();
+            parent.remove(this);
+        }
+
+        @Override
+        void fail(Throwable ex) {
+            super.fail(ex);
+            parent.remove(this);
+        }
+
+        @Override
+        public void cancel() {
+            super.cancel();
+            parent.remove(this);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package hardcore;
+
+import reactor.core.CoreSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.ParallelFlux;
+import reactor.util.concurrent.Queues;
+
+/*
+    ArrayPublisherThreadSafe split into "parallelism" rails
+
+    the array is cut into contiguous index ranges, rail i emitting [i * len / n, (i + 1) * len / n).
+    every rail gets its own subscriber and its own ArraySubscription, hence its own demand.
+    being a ParallelFlux, runOn(scheduler) gives each rail its own worker and sequential() merges them back
+
+        new ArrayPublisherThreadSafe<>(array).parallel(4)
+                .runOn(Schedulers.parallel())
+                .map(heavyWork)
+                .sequential()
+
+    sequential() interleaves the rails, rejoinInOrder() restores the source order instead
+ */
+public class ParallelArrayPublisher<T> extends ParallelFlux<T> {
+    private final T[] array;
+    private final int parallelism;
+
+    public ParallelArrayPublisher(T[] array, int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive but it was " + parallelism);
+        }
+        this.array = array;
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    public int parallelism() {
+        return parallelism;
+    }
+
+    @Override
+    public void subscribe(CoreSubscriber<? super T>[] subscribers) {
+        if (!validate(subscribers)) {
+            return;
+        }
+        final int n = subscribers.length;
+        final long len = array.length;
+        for (int i = 0; i < n; i++) {
+            int from = (int) (len * i / n);
+            int to = (int) (len * (i + 1) / n);
+            ArrayPublisherThreadSafe.ArraySubscription<T> rail =
+                    new ArrayPublisherThreadSafe.ArraySubscription<>(array, from, to, subscribers[i]);
+            subscribers[i].onSubscribe(rail);
+            if (from == to && !rail.outputFused) {
+                // more rails than elements, nothing to wait demand for
+                rail.drain();
+            }
+        }
+    }
+
+    /*
+        ordered re-join of rails coming (through order preserving operators: map, filter, runOn...)
+        from a ParallelArrayPublisher: rail i holds a contiguous range, so emitting the rails one
+        after the other gives back the source order.
+        every rail is subscribed right away and keeps running, at most "prefetch" elements
+        per rail are buffered while an earlier rail drains
+     */
+    public static <T> Flux<T> rejoinInOrder(ParallelFlux<T> rails) {
+        return rejoinInOrder(rails, Queues.SMALL_BUFFER_SIZE);
+    }
+
+    public static <T> Flux<T> rejoinInOrder(ParallelFlux<T> rails, int prefetch) {
+        return rails.groups()
+                .flatMapSequential(rail -> rail, rails.parallelism(), prefetch);
+    }
+}
@@ -6,6 +6,9 @@ import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Scheduler;
 import reactor.core.scheduler.Schedulers;
 
+import java.time.Duration;
+import java.util.List;
+
 /**
  * Learn how to call blocking code from Reactive one with adapted concurrency strategy for
  * blocking code that produces or receives data.
@@ -19,16 +22,60 @@ import reactor.core.scheduler.Schedulers;
  * @see Flux#subscribeOn(Scheduler)
  * @see Flux#publishOn(Scheduler)
  * @see Schedulers
+ * @see VirtualThreadScheduler
  */
 public class Part11BlockingToReactive {
 
+	private static final Duration BULK_SAVE_MAX_WAIT = Duration.ofMinutes(1);
+
+	// where the blocking calls run
+	private final Scheduler blockingScheduler;
+
+	public Part11BlockingToReactive() {
+		this(Schedulers.boundedElastic());
+	}
+
+	public Part11BlockingToReactive(Scheduler blockingScheduler) {
+		this.blockingScheduler = blockingScheduler;
+	}
+
+	/**
+	 * Every blocking call on its own virtual thread on JDK 21+, on {@link Schedulers#boundedElastic()} before.
+	 */
+	public static Part11BlockingToReactive withVirtualThreads() {
+		return new Part11BlockingToReactive(VirtualThreadScheduler.orBoundedElastic());
+	}
+
 //========================================================================================
 
 	// TODO Create a Flux for reading all users from the blocking repository
 	//  deferred until the flux is subscribed, and run it with an elastic scheduler
 	Flux<User> blockingRepositoryToFlux(BlockingRepository<User> repository) {
 		return Flux.defer(() -> Flux.fromIterable(repository.findAll()))
-				.subscribeOn(Schedulers.boundedElastic());
+				.subscribeOn(blockingScheduler);
+	}
+
+	/**
+	 * Pulls the users page by page ({@link BlockingRepository#findAll(String, int)}, so in username order) instead of
+	 * in one blocking call: the first user arrives after one page, memory holds a few pages whatever the table size.
+	 * Each fetch runs on the offload scheduler, the next page is fetched while the current one drains.
+	 */
+	Flux<User> blockingRepositoryToFlux(BlockingRepository<User> repository, int pageSize) {
+		if (pageSize <= 0) {
+			throw new IllegalArgumentException("pageSize must be positive but it was " + pageSize);
+		}
+		// a short page is the last one. Besides the page being drained, one page waits in concatMapIterable
+		// and expand fetches the next one as soon as the previous arrived
+		return fetchPage(repository, null, pageSize)
+				.expand(page -> page.size() < pageSize
+						? Mono.empty()
+						: fetchPage(repository, page.get(page.size() - 1).getUsername(), pageSize))
+				.concatMapIterable(page -> page, 1);
+	}
+
+	private Mono<List<User>> fetchPage(BlockingRepository<User> repository, String afterUsername, int pageSize) {
+		return Mono.fromCallable(() -> repository.findAll(afterUsername, pageSize))
+				.subscribeOn(blockingScheduler);
 	}
 
 //========================================================================================
@@ -36,9 +83,47 @@ public class Part11BlockingToReactive {
 	// TODO Insert users contained in the Flux parameter in the blocking repository using an elastic scheduler and return a Mono<Void> that signal the end of the operation
 	Mono<Void> fluxToBlockingRepository(Flux<User> flux, BlockingRepository<User> repository) {
 		return flux
-				.publishOn(Schedulers.boundedElastic())
+				.publishOn(blockingScheduler)
 				.doOnNext(repository::save)
 				.then(); // TO BE REMOVED
 	}
 
+	/**
+	 * Parallel writer: up to {@code concurrency} blocking saves at once, each saving a batch of {@code batchSize} users
+	 * with one {@link BlockingRepository#saveAll} ({@link BlockingRepository#save} when {@code batchSize} is 1).
+	 * At most {@code concurrency} batches are in flight, the flux is not requested more than that.
+	 *
+	 * @param ordered acknowledge batches in the flux order: each count then means the users before it are all persisted.
+	 *                Otherwise batches are acknowledged as they complete, which does not wait for a slow one.
+	 * @return the number of users persisted so far, after each batch. On error, with {@code ordered},
+	 * the last count is the persisted prefix
+	 */
+	Flux<Long> fluxToBlockingRepository(Flux<User> flux, BlockingRepository<User> repository,
+			int concurrency, int batchSize, boolean ordered) {
+		if (concurrency <= 0 || batchSize <= 0) {
+			throw new IllegalArgumentException("concurrency and batchSize must be positive but they were " + concurrency + " and " + batchSize);
+		}
+		return Flux.defer(() -> {
+			long[] persisted = new long[1];
+			Flux<List<User>> batches = flux.buffer(batchSize);
+			Flux<Integer> saved = ordered
+					? batches.flatMapSequential(batch -> save(batch, repository), concurrency, 1)
+					: batches.flatMap(batch -> save(batch, repository), concurrency, 1);
+			// flatMap and flatMapSequential serialize their output, the count needs no synchronization
+			return saved.map(size -> persisted[0] += size);
+		});
+	}
+
+	private Mono<Integer> save(List<User> batch, BlockingRepository<User> repository) {
+		return Mono.fromCallable(() -> {
+			if (batch.size() == 1) {
+				repository.save(batch.get(0));
+			} else {
+				// the batch is complete, saveAll commits it as soon as it reaches its end
+				repository.saveAll(batch, batch.size(), BULK_SAVE_MAX_WAIT);
+			}
+			return batch.size();
+		}).subscribeOn(blockingScheduler);
+	}
+
 }
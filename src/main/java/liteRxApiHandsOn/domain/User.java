@@ -1,6 +1,10 @@
 package liteRxApiHandsOn.domain;
 
-public class User {
+import java.io.Serializable;
+
+public class User implements Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	public static final User SKYLER = new User("swhite", "Skyler", "White");
 	public static final User JESSE = new User("jpinkman", "Jesse", "Pinkman");
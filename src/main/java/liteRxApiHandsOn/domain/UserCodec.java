@@ -0,0 +1,226 @@
+package liteRxApiHandsOn.domain;
+
+import java.nio.Buffer;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary form of a {@link User}: username, firstname and lastname, each as a 2 bytes unsigned length then its UTF-8 bytes.
+ * <ul>
+ * <li>{@link #encode} writes straight from the strings into the buffer, it allocates nothing</li>
+ * <li>{@link #decode} reads a whole {@link User}, a {@link View} only decodes the fields that are asked for</li>
+ * </ul>
+ * Both move the buffer position past the record, so consecutive records are read back with consecutive calls.
+ * Unpaired surrogates are written as {@code '?'}, like {@link String#getBytes}.
+ */
+public final class UserCodec {
+
+	/** the longest field, in UTF-8 bytes */
+	public static final int MAX_FIELD_BYTES = 0xFFFF;
+
+	private UserCodec() {
+	}
+
+	/**
+	 * @throws IllegalArgumentException if a field is longer than {@link #MAX_FIELD_BYTES}
+	 */
+	public static int encodedLength(User user) {
+		return 6 + fieldLength(user.getUsername()) + fieldLength(user.getFirstname()) + fieldLength(user.getLastname());
+	}
+
+	/**
+	 * @throws BufferOverflowException if the buffer has less than {@link #encodedLength} bytes remaining, nothing is written then
+	 */
+	public static void encode(User user, ByteBuffer buffer) {
+		int username = fieldLength(user.getUsername());
+		int firstname = fieldLength(user.getFirstname());
+		int lastname = fieldLength(user.getLastname());
+		if (buffer.remaining() < 6 + username + firstname + lastname) {
+			throw new BufferOverflowException();
+		}
+		putField(buffer, user.getUsername(), username);
+		putField(buffer, user.getFirstname(), firstname);
+		putField(buffer, user.getLastname(), lastname);
+	}
+
+	public static User decode(ByteBuffer buffer) {
+		return new User(getField(buffer), getField(buffer), getField(buffer));
+	}
+
+	/**
+	 * A view over the record at the buffer position, the position is moved past it.
+	 * The view reads the buffer when a field is asked for: it must not be modified meanwhile.
+	 */
+	public static View view(ByteBuffer buffer) {
+		return new View().wrap(buffer);
+	}
+
+
+	/**
+	 * Lazily decoded record, a field is decoded on its first access and kept.
+	 * {@link #wrap} points it at the next record, one view scans a whole buffer.
+	 */
+	public static final class View {
+
+		private ByteBuffer buffer;
+
+		// offsets of the length prefixes
+		private int username;
+
+		private int firstname;
+
+		private int lastname;
+
+		private String decodedUsername;
+
+		private String decodedFirstname;
+
+		private String decodedLastname;
+
+		public View wrap(ByteBuffer buffer) {
+			this.buffer = buffer;
+			username = buffer.position();
+			firstname = username + 2 + length(buffer, username);
+			lastname = firstname + 2 + length(buffer, firstname);
+			int end = lastname + 2 + length(buffer, lastname);
+			if (end > buffer.limit()) {
+				throw new IllegalArgumentException("truncated user record at offset " + username);
+			}
+			// Buffer casts keep the Java 8 signatures
+			((Buffer) buffer).position(end);
+			decodedUsername = null;
+			decodedFirstname = null;
+			decodedLastname = null;
+			return this;
+		}
+
+		public String username() {
+			if (decodedUsername == null) {
+				decodedUsername = field(buffer, username);
+			}
+			return decodedUsername;
+		}
+
+		public String firstname() {
+			if (decodedFirstname == null) {
+				decodedFirstname = field(buffer, firstname);
+			}
+			return decodedFirstname;
+		}
+
+		public String lastname() {
+			if (decodedLastname == null) {
+				decodedLastname = field(buffer, lastname);
+			}
+			return decodedLastname;
+		}
+
+		/**
+		 * Compares the encoded bytes, the username is not decoded.
+		 */
+		public boolean usernameEquals(String candidate) {
+			if (decodedUsername != null) {
+				return decodedUsername.equals(candidate);
+			}
+			int length = length(buffer, username);
+			// no range check: a candidate too long to encode is simply not equal
+			if (utf8Length(candidate) != length) {
+				return false;
+			}
+			int offset = username + 2;
+			for (int i = 0; i < candidate.length(); i++) {
+				char c = candidate.charAt(i);
+				if (c >= 0x80) {
+					// rare enough, compare the decoded value
+					return username().equals(candidate);
+				}
+				if (buffer.get(offset++) != (byte) c) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		public User toUser() {
+			return new User(username(), firstname(), lastname());
+		}
+	}
+
+
+	private static int fieldLength(String value) {
+		int length = utf8Length(value);
+		if (length > MAX_FIELD_BYTES) {
+			throw new IllegalArgumentException("user fields are limited to " + MAX_FIELD_BYTES + " UTF-8 bytes but one has " + length);
+		}
+		return length;
+	}
+
+	private static int utf8Length(String value) {
+		int length = 0;
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c < 0x80) {
+				length++;
+			} else if (c < 0x800) {
+				length += 2;
+			} else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+				length += 4;
+				i++;
+			} else if (Character.isSurrogate(c)) {
+				length++;
+			} else {
+				length += 3;
+			}
+		}
+		return length;
+	}
+
+	private static void putField(ByteBuffer buffer, String value, int length) {
+		buffer.putShort((short) length);
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c < 0x80) {
+				buffer.put((byte) c);
+			} else if (c < 0x800) {
+				buffer.put((byte) (0xC0 | c >> 6));
+				buffer.put((byte) (0x80 | c & 0x3F));
+			} else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+				int codePoint = Character.toCodePoint(c, value.charAt(++i));
+				buffer.put((byte) (0xF0 | codePoint >> 18));
+				buffer.put((byte) (0x80 | codePoint >> 12 & 0x3F));
+				buffer.put((byte) (0x80 | codePoint >> 6 & 0x3F));
+				buffer.put((byte) (0x80 | codePoint & 0x3F));
+			} else if (Character.isSurrogate(c)) {
+				buffer.put((byte) '?');
+			} else {
+				buffer.put((byte) (0xE0 | c >> 12));
+				buffer.put((byte) (0x80 | c >> 6 & 0x3F));
+				buffer.put((byte) (0x80 | c & 0x3F));
+			}
+		}
+	}
+
+	private static String getField(ByteBuffer buffer) {
+		String value = field(buffer, buffer.position());
+		((Buffer) buffer).position(buffer.position() + 2 + length(buffer, buffer.position()));
+		return value;
+	}
+
+	private static int length(ByteBuffer buffer, int offset) {
+		return buffer.getShort(offset) & 0xFFFF;
+	}
+
+	// absolute read of the field whose length prefix is at offset
+	private static String field(ByteBuffer buffer, int offset) {
+		int length = length(buffer, offset);
+		if (buffer.hasArray()) {
+			return new String(buffer.array(), buffer.arrayOffset() + offset + 2, length, StandardCharsets.UTF_8);
+		}
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++) {
+			bytes[i] = buffer.get(offset + 2 + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,75 @@
+package liteRxApiHandsOn.domain;
+
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * A {@link Scheduler} running every task on its own virtual thread, for offloading blocking calls without
+ * the thread cap (and task queue) of {@link Schedulers#boundedElastic()}.
+ * <p>
+ * Virtual threads need JDK 21+, they are reached by reflection so the project still builds and runs on Java 8:
+ * {@link #isSupported()} tells whether this JVM has them, {@link #orBoundedElastic()} falls back when it does not.
+ */
+public final class VirtualThreadScheduler {
+
+	private static final Method OF_VIRTUAL = ofVirtual();
+
+	private VirtualThreadScheduler() {
+	}
+
+	public static boolean isSupported() {
+		return OF_VIRTUAL != null;
+	}
+
+	/**
+	 * @throws IllegalStateException before JDK 21, see {@link #isSupported()}
+	 */
+	public static Scheduler create(String name) {
+		if (!isSupported()) {
+			throw new IllegalStateException("virtual threads need JDK 21+, this is " + System.getProperty("java.version"));
+		}
+		return Schedulers.fromExecutorService(newThreadPerTaskExecutor(name), name);
+	}
+
+	/**
+	 * A virtual thread scheduler on JDK 21+, the shared {@link Schedulers#boundedElastic()} otherwise.
+	 */
+	public static Scheduler orBoundedElastic() {
+		return isSupported() ? Holder.SHARED : Schedulers.boundedElastic();
+	}
+
+	// Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory())
+	private static ExecutorService newThreadPerTaskExecutor(String name) {
+		try {
+			Object builder = OF_VIRTUAL.invoke(null);
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, name + "-", 0L);
+			ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+			return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, factory);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("virtual threads detected but not usable", e);
+		}
+	}
+
+	// null unless virtual threads can actually be started: on JDK 19/20 they are a preview feature
+	private static Method ofVirtual() {
+		try {
+			Method ofVirtual = Thread.class.getMethod("ofVirtual");
+			Object builder = ofVirtual.invoke(null);
+			Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+			return ofVirtual;
+		} catch (ReflectiveOperationException | RuntimeException | LinkageError unsupported) {
+			return null;
+		}
+	}
+
+	private static final class Holder {
+
+		static final Scheduler SHARED = create("virtual");
+	}
+}
@@ -0,0 +1,46 @@
+package liteRxApiHandsOn.domain.repository;
+
+/**
+ * Acknowledges one batch committed by a bulk save: its position in the stream of batches and how many values it held.
+ */
+public final class BatchAck {
+
+	private final long batch;
+
+	private final int size;
+
+	public BatchAck(long batch, int size) {
+		this.batch = batch;
+		this.size = size;
+	}
+
+	public long getBatch() {
+		return batch;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (o == null || getClass() != o.getClass()) {
+			return false;
+		}
+		BatchAck that = (BatchAck) o;
+		return batch == that.batch && size == that.size;
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * Long.hashCode(batch) + size;
+	}
+
+	@Override
+	public String toString() {
+		return "BatchAck{batch=" + batch + ", size=" + size + '}';
+	}
+}
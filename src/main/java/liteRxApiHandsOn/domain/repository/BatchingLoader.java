@@ -0,0 +1,128 @@
+package liteRxApiHandsOn.domain.repository;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * DataLoader style front of {@link ReactiveRepository#findById}: the loads requested within {@code window},
+ * or until {@code maxBatchSize} distinct ids are pending, are dispatched as one {@link ReactiveRepository#findAllById}
+ * and each {@link Mono} gets its own value back. Loads of the same id in a batch share one slot.
+ * <p>
+ * A load completes empty when the bulk query has no value for its id, and fails with the bulk query error.
+ * The batch is dispatched on subscription to the returned {@link Mono}s, cancelling one of them does not cancel the batch.
+ */
+public class BatchingLoader<T> {
+
+	private final ReactiveRepository<T> repository;
+
+	private final Function<T, String> idOf;
+
+	private final int maxBatchSize;
+
+	private final long windowNanos;
+
+	private final Scheduler scheduler;
+
+	private final LongAdder batches = new LongAdder();
+
+	// guarded by this
+	private Map<String, Sinks.One<T>> pending = new LinkedHashMap<>();
+
+	// guarded by this, flushes the pending batch at the end of its window
+	private Disposable timer;
+
+	public BatchingLoader(ReactiveRepository<T> repository, Function<T, String> idOf, int maxBatchSize, Duration window) {
+		this(repository, idOf, maxBatchSize, window, Schedulers.parallel());
+	}
+
+	public BatchingLoader(ReactiveRepository<T> repository, Function<T, String> idOf, int maxBatchSize, Duration window, Scheduler scheduler) {
+		if (maxBatchSize <= 0) {
+			throw new IllegalArgumentException("maxBatchSize must be positive but it was " + maxBatchSize);
+		}
+		this.repository = repository;
+		this.idOf = idOf;
+		this.maxBatchSize = maxBatchSize;
+		this.windowNanos = window.toNanos();
+		this.scheduler = scheduler;
+	}
+
+	public Mono<T> load(String id) {
+		return Mono.defer(() -> {
+			Sinks.One<T> sink;
+			Map<String, Sinks.One<T>> full = null;
+			synchronized (this) {
+				sink = pending.get(id);
+				if (sink == null) {
+					sink = Sinks.one();
+					pending.put(id, sink);
+					if (pending.size() >= maxBatchSize) {
+						full = takePending();
+					} else if (pending.size() == 1) {
+						timer = scheduler.schedule(this::flush, windowNanos, TimeUnit.NANOSECONDS);
+					}
+				}
+			}
+			Mono<T> value = sink.asMono();
+			if (full != null) {
+				dispatch(full);
+			}
+			return value;
+		});
+	}
+
+	/**
+	 * Dispatches the pending loads now instead of waiting for the end of the window.
+	 */
+	public void flush() {
+		Map<String, Sinks.One<T>> batch;
+		synchronized (this) {
+			if (pending.isEmpty()) {
+				return;
+			}
+			batch = takePending();
+		}
+		dispatch(batch);
+	}
+
+	/**
+	 * How many bulk queries were dispatched.
+	 */
+	public long batchCount() {
+		return batches.sum();
+	}
+
+	// the caller holds the monitor
+	private Map<String, Sinks.One<T>> takePending() {
+		Map<String, Sinks.One<T>> batch = pending;
+		pending = new LinkedHashMap<>();
+		if (timer != null) {
+			timer.dispose();
+			timer = null;
+		}
+		return batch;
+	}
+
+	private void dispatch(Map<String, Sinks.One<T>> batch) {
+		batches.increment();
+		repository.findAllById(new ArrayList<>(batch.keySet())).subscribe(
+				value -> {
+					Sinks.One<T> sink = batch.remove(idOf.apply(value));
+					if (sink != null) {
+						sink.tryEmitValue(value);
+					}
+				},
+				error -> batch.values().forEach(sink -> sink.tryEmitError(error)),
+				() -> batch.values().forEach(Sinks.One::tryEmitEmpty));
+	}
+}
@@ -1,12 +1,43 @@
 package liteRxApiHandsOn.domain.repository;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
 public interface BlockingRepository<T> {
 
 	void save(T value);
 
+	/**
+	 * Blocking counterpart of {@link ReactiveRepository#saveAll}, returns once every batch is committed.
+	 */
+	List<BatchAck> saveAll(Iterable<T> values, int maxBatchSize, Duration maxWait);
+
 	T findFirst();
 
 	Iterable<T> findAll();
 
+	/**
+	 * Buffers at most {@code prefetch} values: they are requested {@code prefetch} at first, then refilled each time
+	 * {@code lowTideRatio * prefetch} of them were consumed (0.75 being Reactor's default). {@code lowTideRatio} is in
+	 * (0, 1], 1 refills only once the whole buffer was consumed.
+	 */
+	Iterable<T> findAll(int prefetch, double lowTideRatio);
+
+	/**
+	 * {@link #findAll(int, double)} as a lazy {@link Stream}, closing it cancels the query: use try-with-resources.
+	 */
+	Stream<T> stream(int prefetch, double lowTideRatio);
+
+	/**
+	 * See {@link ReactiveRepository#findAll(String, int)}.
+	 */
+	List<T> findAll(String afterId, int limit);
+
+	/**
+	 * See {@link ReactiveRepository#findAllByCursor}, the next page is fetched while iterating.
+	 */
+	Iterable<T> findAllByCursor(String afterId, int pageSize);
+
 	T findById(String id);
 }
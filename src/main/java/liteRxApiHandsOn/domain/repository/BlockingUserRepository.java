@@ -1,13 +1,19 @@
 package liteRxApiHandsOn.domain.repository;
 
 import liteRxApiHandsOn.domain.User;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
 public class BlockingUserRepository implements BlockingRepository<User>{
 
 	private final ReactiveRepository<User> reactiveRepository;
 
-	private int callCount = 0;
+	private final RepositoryMetrics metrics = new RepositoryMetrics();
 
 	public BlockingUserRepository() {
 		reactiveRepository = new ReactiveUserRepository();
@@ -25,32 +31,90 @@ public class BlockingUserRepository implements BlockingRepository<User>{
 		reactiveRepository = new ReactiveUserRepository(delayInMs, users);
 	}
 
+	public BlockingUserRepository(ReactiveRepository<User> reactiveRepository) {
+		this.reactiveRepository = reactiveRepository;
+	}
+
 
 	@Override
 	public void save(User user) {
-		callCount++;
-		reactiveRepository.save(Mono.just(user)).block();
+		timed("save", () -> reactiveRepository.save(Mono.just(user)).block());
+	}
+
+	@Override
+	public List<BatchAck> saveAll(Iterable<User> users, int maxBatchSize, Duration maxWait) {
+		return timed("saveAll", () -> reactiveRepository.saveAll(Flux.fromIterable(users), maxBatchSize, maxWait).collectList().block());
 	}
 
 	@Override
 	public User findFirst() {
-		callCount++;
-		return reactiveRepository.findFirst().block();
+		return timed("findFirst", () -> reactiveRepository.findFirst().block());
 	}
 
 	@Override
 	public Iterable<User> findAll() {
-		callCount++;
-		return reactiveRepository.findAll().toIterable();
+		return timed("findAll", () -> reactiveRepository.findAll().toIterable());
+	}
+
+	@Override
+	public Iterable<User> findAll(int prefetch, double lowTideRatio) {
+		return timed("findAll", () -> limitRate(reactiveRepository.findAll(), prefetch, lowTideRatio).toIterable(1));
+	}
+
+	@Override
+	public Stream<User> stream(int prefetch, double lowTideRatio) {
+		return timed("stream", () -> limitRate(reactiveRepository.findAll(), prefetch, lowTideRatio).toStream(1));
+	}
+
+	@Override
+	public List<User> findAll(String afterUsername, int limit) {
+		return timed("findAllPage", () -> reactiveRepository.findAll(afterUsername, limit).collectList().block());
+	}
+
+	@Override
+	public Iterable<User> findAllByCursor(String afterUsername, int pageSize) {
+		return timed("findAllByCursor", () -> reactiveRepository.findAllByCursor(afterUsername, pageSize).toIterable(pageSize));
 	}
 
 	@Override
 	public User findById(String username) {
-		callCount++;
-		return reactiveRepository.findById(username).block();
+		return timed("findById", () -> reactiveRepository.findById(username).block());
 	}
 
 	public int getCallCount() {
-		return callCount;
+		return (int) metrics.getTotalCalls();
+	}
+
+	/**
+	 * Lazy results ({@link #findAll()}, {@link #stream}, {@link #findAllByCursor}) are timed until they are handed out, not while iterated.
+	 */
+	public RepositoryMetrics metrics() {
+		return metrics;
+	}
+
+	// limitRate holds the buffer, the blocking side takes one user at a time from it
+	private static Flux<User> limitRate(Flux<User> users, int prefetch, double lowTideRatio) {
+		if (prefetch <= 0) {
+			throw new IllegalArgumentException("prefetch must be positive but it was " + prefetch);
+		}
+		if (!(lowTideRatio > 0 && lowTideRatio <= 1)) {
+			throw new IllegalArgumentException("lowTideRatio must be in (0, 1] but it was " + lowTideRatio);
+		}
+		int lowTide = Math.max(1, (int) Math.round(prefetch * lowTideRatio));
+		// Reactor reads a low tide of prefetch or more as 75%, 0 is its "refill once all were consumed"
+		return users.limitRate(prefetch, lowTide >= prefetch ? 0 : lowTide);
+	}
+
+	private <R> R timed(String method, Supplier<R> call) {
+		MethodMetrics methodMetrics = metrics.method(method);
+		long start = methodMetrics.start();
+		try {
+			R result = call.get();
+			methodMetrics.success(start);
+			return result;
+		} catch (RuntimeException | Error e) {
+			methodMetrics.failure(start);
+			throw e;
+		}
 	}
 }
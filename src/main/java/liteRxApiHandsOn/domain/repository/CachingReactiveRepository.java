@@ -0,0 +1,223 @@
+package liteRxApiHandsOn.domain.repository;
+
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Caches {@link #findById} results of any {@link ReactiveRepository}, every other read goes to the delegate.
+ * <ul>
+ * <li>about {@code maxSize} ids are cached: once there are more, the least recently used ones are evicted
+ * in a batch of {@code maxSize / 16} (one at a time below 16 entries) by a single thread, the others do not wait for it</li>
+ * <li>an entry expires {@code ttl} after its value arrived, measured on the clock of the given scheduler</li>
+ * <li>saving a value invalidates its id</li>
+ * <li>concurrent misses on an id share one delegate call, errors are not cached, empty results are</li>
+ * </ul>
+ * A hit takes no lock: the entries are in a {@link ConcurrentHashMap} and a hit only stamps the entry with its access time,
+ * so a hot key is served in parallel.
+ */
+public class CachingReactiveRepository<T> implements ReactiveRepository<T> {
+
+	private final ReactiveRepository<T> delegate;
+
+	private final Function<T, String> idOf;
+
+	private final int maxSize;
+
+	private final long ttlNanos;
+
+	private final Scheduler clock;
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	private final LongAdder evictions = new LongAdder();
+
+	private final ConcurrentMap<String, Entry<T>> entries = new ConcurrentHashMap<>();
+
+	// the thread evicting, others skip eviction meanwhile
+	private final AtomicBoolean evicting = new AtomicBoolean();
+
+	public CachingReactiveRepository(ReactiveRepository<T> delegate, Function<T, String> idOf, int maxSize) {
+		this(delegate, idOf, maxSize, Duration.ofNanos(Long.MAX_VALUE), Schedulers.parallel());
+	}
+
+	public CachingReactiveRepository(ReactiveRepository<T> delegate, Function<T, String> idOf, int maxSize, Duration ttl) {
+		this(delegate, idOf, maxSize, ttl, Schedulers.parallel());
+	}
+
+	public CachingReactiveRepository(ReactiveRepository<T> delegate, Function<T, String> idOf, int maxSize, Duration ttl, Scheduler clock) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("maxSize must be positive but it was " + maxSize);
+		}
+		this.delegate = delegate;
+		this.idOf = idOf;
+		this.maxSize = maxSize;
+		this.ttlNanos = ttl.toNanos();
+		this.clock = clock;
+	}
+
+
+	@Override
+	public Mono<T> findById(String id) {
+		return Mono.defer(() -> {
+			long now = clock.now(TimeUnit.NANOSECONDS);
+			Entry<T> entry = entries.get(id);
+			if (entry == null || !entry.isFresh(now, ttlNanos)) {
+				Entry<T> loading = new Entry<>();
+				// only assembled here, the first subscriber triggers the load and the others join it
+				loading.value = delegate.findById(id)
+						.doOnSuccess(value -> loading.loadedAt = clock.now(TimeUnit.NANOSECONDS))
+						.doOnError(e -> entries.remove(id, loading))
+						.cache();
+				entry = entries.compute(id, (key, current) -> current != null && current.isFresh(now, ttlNanos) ? current : loading);
+				if (entry == loading) {
+					misses.increment();
+					evictIfNeeded();
+					return loading.value;
+				}
+			}
+			hits.increment();
+			entry.lastAccess = System.nanoTime();
+			return entry.value;
+		});
+	}
+
+	/**
+	 * Values are invalidated as they go to the delegate and again once it is done with them,
+	 * so a load racing with the save cannot keep a stale value.
+	 */
+	@Override
+	public Mono<Void> save(Publisher<T> publisher) {
+		return Mono.defer(() -> {
+			Queue<String> saved = new ConcurrentLinkedQueue<>();
+			return delegate.save(Flux.from(publisher).doOnNext(value -> invalidate(saved, value)))
+					.doFinally(signal -> saved.forEach(this::invalidate));
+		});
+	}
+
+	@Override
+	public Flux<BatchAck> saveAll(Publisher<T> publisher, int maxBatchSize, Duration maxWait) {
+		return Flux.defer(() -> {
+			Queue<String> saved = new ConcurrentLinkedQueue<>();
+			return delegate.saveAll(Flux.from(publisher).doOnNext(value -> invalidate(saved, value)), maxBatchSize, maxWait)
+					.doOnNext(ack -> saved.forEach(this::invalidate))
+					.doFinally(signal -> saved.forEach(this::invalidate));
+		});
+	}
+
+	@Override
+	public Flux<T> findAllById(Collection<String> ids) {
+		return delegate.findAllById(ids);
+	}
+
+	@Override
+	public Mono<T> findFirst() {
+		return delegate.findFirst();
+	}
+
+	@Override
+	public Flux<T> findAll() {
+		return delegate.findAll();
+	}
+
+	@Override
+	public Flux<T> findAll(String afterId, int limit) {
+		return delegate.findAll(afterId, limit);
+	}
+
+	@Override
+	public Flux<T> findAllByCursor(String afterId, int pageSize) {
+		return delegate.findAllByCursor(afterId, pageSize);
+	}
+
+	public void invalidate(String id) {
+		entries.remove(id);
+	}
+
+	public void invalidateAll() {
+		entries.clear();
+	}
+
+	public long hitCount() {
+		return hits.sum();
+	}
+
+	public long missCount() {
+		return misses.sum();
+	}
+
+	public long evictionCount() {
+		return evictions.sum();
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	private void invalidate(Queue<String> saved, T value) {
+		String id = idOf.apply(value);
+		saved.add(id);
+		invalidate(id);
+	}
+
+	// evicts the least recently used entries down to maxSize minus a batch, so sorting them is paid once per batch
+	private void evictIfNeeded() {
+		if (entries.size() <= maxSize || !evicting.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			List<Map.Entry<String, Entry<T>>> candidates = new ArrayList<>(entries.entrySet());
+			int excess = candidates.size() - (maxSize - maxSize / 16);
+			if (excess <= 0) {
+				return;
+			}
+			candidates.sort(Comparator.comparingLong(candidate -> candidate.getValue().lastAccess));
+			for (int i = 0; i < excess; i++) {
+				Map.Entry<String, Entry<T>> candidate = candidates.get(i);
+				if (entries.remove(candidate.getKey(), candidate.getValue())) {
+					evictions.increment();
+				}
+			}
+		} finally {
+			evicting.set(false);
+		}
+	}
+
+	private static final class Entry<T> {
+
+		static final long LOADING = Long.MIN_VALUE;
+
+		// the clock time the value arrived at
+		volatile long loadedAt = LOADING;
+
+		volatile long lastAccess = System.nanoTime();
+
+		// set before the entry is published
+		Mono<T> value;
+
+		// a load in flight is shared, whatever its age
+		boolean isFresh(long now, long ttlNanos) {
+			long loaded = loadedAt;
+			return loaded == LOADING || now - loaded < ttlNanos;
+		}
+	}
+}
@@ -0,0 +1,351 @@
+package liteRxApiHandsOn.domain.repository;
+
+import liteRxApiHandsOn.domain.User;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Compact {@link UserStore}: users are stored as columns, {@link User} objects are only created when they are read.
+ * <ul>
+ * <li>firstnames and lastnames are {@code int} codes into one dictionary, a name repeated by a million users is stored once</li>
+ * <li>usernames are UTF-8 bytes packed one after the other in a byte arena, each row keeps where its username ends</li>
+ * <li>the username index is an open addressing table of row numbers, hashed on the arena bytes</li>
+ * <li>pages come from an array of row numbers sorted by username, new rows are merged into it by the next page</li>
+ * </ul>
+ * About 16 bytes per user plus the username bytes and the index, instead of a {@link User} and its three strings.
+ * <p>
+ * Writers are serialized on the store monitor. Readers take no lock: the row count is published after the row is written
+ * and the columns are replaced, never resized in place, when they grow. Pages are weakly consistent like
+ * {@link ConcurrentUserStore}'s, their order is the UTF-8 byte order of the usernames, which is {@link String} order
+ * except between supplementary characters and U+E000 to U+FFFF.
+ */
+public class ColumnarUserStore implements UserStore {
+
+	private static final int INITIAL_ROWS = 16;
+
+	// the rows readers may see, published once a row is complete
+	private volatile int size;
+
+	private volatile Columns columns = new Columns(new int[INITIAL_ROWS], new int[INITIAL_ROWS], new int[INITIAL_ROWS],
+			new byte[INITIAL_ROWS * 8], new String[INITIAL_ROWS], new int[INITIAL_ROWS * 2]);
+
+	private volatile Sorted sorted = new Sorted(new int[0], 0);
+
+	private final Object sortLock = new Object();
+
+	// writer side, guarded by this
+	private final Map<String, Integer> codes = new HashMap<>();
+
+	private int arenaSize;
+
+	private int indexed;
+
+	public ColumnarUserStore(User... users) {
+		for (User user : users) {
+			add(user);
+		}
+	}
+
+	@Override
+	public synchronized void add(User user) {
+		int row = size;
+		byte[] username = user.getUsername().getBytes(StandardCharsets.UTF_8);
+		int firstname = code(user.getFirstname());
+		int lastname = code(user.getLastname());
+		Columns c = ensureCapacity(row + 1, arenaSize + username.length);
+		System.arraycopy(username, 0, c.usernames, arenaSize, username.length);
+		arenaSize += username.length;
+		c.usernameEnds[row] = arenaSize;
+		c.firstnames[row] = firstname;
+		c.lastnames[row] = lastname;
+		// only the first user stored with a username is indexed
+		if (find(c, c.usernames, arenaSize - username.length, username.length, row) < 0) {
+			if ((indexed + 1) * 2 > c.index.length) {
+				c = publish(new Columns(c.firstnames, c.lastnames, c.usernameEnds, c.usernames, c.names, rehash(c, c.index.length * 2)));
+			}
+			insert(c.index, c, row);
+			indexed++;
+		}
+		size = row + 1;
+	}
+
+	@Override
+	public synchronized void addAll(Collection<User> users) {
+		for (User user : users) {
+			add(user);
+		}
+	}
+
+	@Override
+	public User findByUsername(String username) {
+		int n = size;
+		Columns c = columns;
+		byte[] key = username.getBytes(StandardCharsets.UTF_8);
+		int row = find(c, key, 0, key.length, n);
+		return row < 0 ? null : c.user(row);
+	}
+
+	@Override
+	public User first() {
+		return size == 0 ? null : columns.user(0);
+	}
+
+	@Override
+	public Iterable<User> snapshot() {
+		final int n = size;
+		final Columns c = columns;
+		return () -> new Iterator<User>() {
+			int row;
+
+			@Override
+			public boolean hasNext() {
+				return row < n;
+			}
+
+			@Override
+			public User next() {
+				if (row >= n) {
+					throw new NoSuchElementException();
+				}
+				return c.user(row++);
+			}
+		};
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public List<User> page(String afterUsername, int limit) {
+		Sorted s = sorted();
+		Columns c = columns;
+		int from = 0;
+		if (afterUsername != null) {
+			// first row whose username is greater than afterUsername
+			byte[] key = afterUsername.getBytes(StandardCharsets.UTF_8);
+			int low = 0;
+			int high = s.rows.length;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (c.compare(s.rows[mid], key, 0, key.length) <= 0) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			from = low;
+		}
+		List<User> page = new ArrayList<>(Math.min(limit, s.rows.length - from));
+		for (int i = from; i < s.rows.length && page.size() < limit; i++) {
+			page.add(c.user(s.rows[i]));
+		}
+		return page;
+	}
+
+
+	// ---- writer side
+
+	private int code(String name) {
+		Integer code = codes.get(name);
+		if (code == null) {
+			code = codes.size();
+			Columns c = columns;
+			if (code == c.names.length) {
+				c = publish(new Columns(c.firstnames, c.lastnames, c.usernameEnds, c.usernames,
+						Arrays.copyOf(c.names, c.names.length * 2), c.index));
+			}
+			c.names[code] = name;
+			codes.put(name, code);
+		}
+		return code;
+	}
+
+	private Columns ensureCapacity(int rows, int arenaBytes) {
+		Columns c = columns;
+		if (rows <= c.firstnames.length && arenaBytes <= c.usernames.length) {
+			return c;
+		}
+		int rowCapacity = c.firstnames.length < rows ? c.firstnames.length * 2 : c.firstnames.length;
+		byte[] usernames = c.usernames.length < arenaBytes
+				? Arrays.copyOf(c.usernames, Math.max(c.usernames.length * 2, arenaBytes))
+				: c.usernames;
+		return publish(new Columns(Arrays.copyOf(c.firstnames, rowCapacity), Arrays.copyOf(c.lastnames, rowCapacity),
+				Arrays.copyOf(c.usernameEnds, rowCapacity), usernames, c.names, c.index));
+	}
+
+	private Columns publish(Columns c) {
+		columns = c;
+		return c;
+	}
+
+	private static int[] rehash(Columns c, int capacity) {
+		int[] index = new int[capacity];
+		for (int slot : c.index) {
+			if (slot != 0) {
+				insert(index, c, slot - 1);
+			}
+		}
+		return index;
+	}
+
+	private static void insert(int[] index, Columns c, int row) {
+		int mask = index.length - 1;
+		int slot = hash(c.usernames, c.start(row), c.usernameEnds[row]) & mask;
+		while (index[slot] != 0) {
+			slot = (slot + 1) & mask;
+		}
+		// row + 1, 0 is an empty slot
+		index[slot] = row + 1;
+	}
+
+
+	// ---- reader side
+
+	// the first row below n with that username, or -1
+	private static int find(Columns c, byte[] key, int offset, int length, int n) {
+		int[] index = c.index;
+		int mask = index.length - 1;
+		for (int slot = hash(key, offset, offset + length) & mask; index[slot] != 0; slot = (slot + 1) & mask) {
+			int row = index[slot] - 1;
+			// a row past n was indexed after this read started
+			if (row < n && c.compare(row, key, offset, length) == 0) {
+				return row;
+			}
+		}
+		return -1;
+	}
+
+	private static int hash(byte[] bytes, int from, int to) {
+		int h = 0;
+		for (int i = from; i < to; i++) {
+			h = 31 * h + bytes[i];
+		}
+		return h ^ (h >>> 16);
+	}
+
+	// merges the rows indexed since the last page into the sorted rows
+	private Sorted sorted() {
+		Sorted s = sorted;
+		if (s.upTo == size) {
+			return s;
+		}
+		synchronized (sortLock) {
+			s = sorted;
+			int n = size;
+			if (s.upTo >= n) {
+				return s;
+			}
+			Columns c = columns;
+			int[] added = new int[n - s.upTo];
+			int count = 0;
+			for (int row = s.upTo; row < n; row++) {
+				if (find(c, c.usernames, c.start(row), c.usernameEnds[row] - c.start(row), n) == row) {
+					added[count++] = row;
+				}
+			}
+			added = Arrays.copyOf(added, count);
+			sort(c, added, new int[count], 0, count);
+			int[] merged = new int[s.rows.length + count];
+			int i = 0;
+			int j = 0;
+			for (int k = 0; k < merged.length; k++) {
+				merged[k] = j == count || i < s.rows.length && c.compare(s.rows[i], added[j]) < 0 ? s.rows[i++] : added[j++];
+			}
+			s = new Sorted(merged, n);
+			sorted = s;
+			return s;
+		}
+	}
+
+	// merge sort of rows by username, the JDK only sorts int[] by value
+	private static void sort(Columns c, int[] rows, int[] tmp, int from, int to) {
+		if (to - from < 2) {
+			return;
+		}
+		int mid = (from + to) >>> 1;
+		sort(c, rows, tmp, from, mid);
+		sort(c, rows, tmp, mid, to);
+		System.arraycopy(rows, from, tmp, from, to - from);
+		int i = from;
+		int j = mid;
+		for (int k = from; k < to; k++) {
+			rows[k] = j == to || i < mid && c.compare(tmp[i], tmp[j]) <= 0 ? tmp[i++] : tmp[j++];
+		}
+	}
+
+
+	private static final class Columns {
+
+		final int[] firstnames;
+
+		final int[] lastnames;
+
+		final int[] usernameEnds;
+
+		final byte[] usernames;
+
+		// dictionary: code -> name
+		final String[] names;
+
+		final int[] index;
+
+		Columns(int[] firstnames, int[] lastnames, int[] usernameEnds, byte[] usernames, String[] names, int[] index) {
+			this.firstnames = firstnames;
+			this.lastnames = lastnames;
+			this.usernameEnds = usernameEnds;
+			this.usernames = usernames;
+			this.names = names;
+			this.index = index;
+		}
+
+		int start(int row) {
+			return row == 0 ? 0 : usernameEnds[row - 1];
+		}
+
+		User user(int row) {
+			int start = start(row);
+			return new User(new String(usernames, start, usernameEnds[row] - start, StandardCharsets.UTF_8),
+					names[firstnames[row]], names[lastnames[row]]);
+		}
+
+		int compare(int row, byte[] key, int offset, int length) {
+			int start = start(row);
+			int rowLength = usernameEnds[row] - start;
+			for (int i = 0; i < Math.min(rowLength, length); i++) {
+				int diff = (usernames[start + i] & 0xFF) - (key[offset + i] & 0xFF);
+				if (diff != 0) {
+					return diff;
+				}
+			}
+			return rowLength - length;
+		}
+
+		int compare(int row, int other) {
+			int start = start(other);
+			return compare(row, usernames, start, usernameEnds[other] - start);
+		}
+	}
+
+	private static final class Sorted {
+
+		final int[] rows;
+
+		// the rows below upTo are merged
+		final int upTo;
+
+		Sorted(int[] rows, int upTo) {
+			this.rows = rows;
+			this.upTo = upTo;
+		}
+	}
+}
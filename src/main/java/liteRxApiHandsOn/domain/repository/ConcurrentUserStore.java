@@ -0,0 +1,185 @@
+package liteRxApiHandsOn.domain.repository;
+
+import liteRxApiHandsOn.domain.User;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free {@link UserStore}.
+ * <p>
+ * Users live in an append-only log of fixed size segments. A writer claims its slot with one
+ * {@code getAndIncrement} and fills it, so writers never wait for each other. The segment directory
+ * grows copy-on-write, segments themselves are never copied.
+ * A snapshot is the claimed count at the time it was taken: it sees every user whose slot was claimed
+ * before, waits the few instructions it takes to fill a claimed slot, and never sees later ones.
+ * The username index is a {@link ConcurrentHashMap} for lookups, doubled by a {@link ConcurrentSkipListMap}
+ * for keyset pagination. Pages are weakly consistent: a page reflects the users stored when it is read.
+ * Index entries remember their slot and the lowest slot wins a username, so the user listed first by a snapshot
+ * is the one found by username, whichever of two concurrent adds indexes first. Until both adds returned,
+ * a lookup may briefly see the later one.
+ */
+public class ConcurrentUserStore implements UserStore {
+
+	private static final int SEGMENT_SHIFT = 10;
+
+	private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+
+	private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+	private final AtomicInteger claimed = new AtomicInteger();
+
+	private final AtomicReference<AtomicReferenceArray<User>[]> segments =
+			new AtomicReference<>(newDirectory(null, 1));
+
+	private final ConcurrentMap<String, Indexed> usersByUsername = new ConcurrentHashMap<>();
+
+	private final ConcurrentNavigableMap<String, Indexed> sortedUsers = new ConcurrentSkipListMap<>();
+
+	public ConcurrentUserStore(User... users) {
+		for (User user : users) {
+			add(user);
+		}
+	}
+
+	@Override
+	public void add(User user) {
+		int index = claimed.getAndIncrement();
+		segmentFor(index).set(index & SEGMENT_MASK, user);
+		index(user, index);
+	}
+
+	// one claim for the whole batch, the batch lands in contiguous slots
+	@Override
+	public void addAll(Collection<User> users) {
+		int first = claimed.getAndAdd(users.size());
+		int index = first;
+		for (User user : users) {
+			segmentFor(index).set(index & SEGMENT_MASK, user);
+			index++;
+		}
+		index = first;
+		for (User user : users) {
+			index(user, index++);
+		}
+	}
+
+	// the lowest slot wins, whatever the order the writers get here
+	private void index(User user, int slot) {
+		Indexed entry = new Indexed(user, slot);
+		usersByUsername.merge(user.getUsername(), entry, Indexed::first);
+		sortedUsers.merge(user.getUsername(), entry, Indexed::first);
+	}
+
+	@Override
+	public User findByUsername(String username) {
+		Indexed entry = usersByUsername.get(username);
+		return entry == null ? null : entry.user;
+	}
+
+	@Override
+	public User first() {
+		return claimed.get() == 0 ? null : get(0);
+	}
+
+	@Override
+	public Iterable<User> snapshot() {
+		final int size = claimed.get();
+		return () -> new Iterator<User>() {
+			int index;
+
+			@Override
+			public boolean hasNext() {
+				return index < size;
+			}
+
+			@Override
+			public User next() {
+				if (index >= size) {
+					throw new NoSuchElementException();
+				}
+				return get(index++);
+			}
+		};
+	}
+
+	@Override
+	public int size() {
+		return claimed.get();
+	}
+
+	@Override
+	public List<User> page(String afterUsername, int limit) {
+		ConcurrentNavigableMap<String, Indexed> tail = afterUsername == null ? sortedUsers : sortedUsers.tailMap(afterUsername, false);
+		List<User> page = new ArrayList<>(Math.min(limit, 1024));
+		for (Indexed entry : tail.values()) {
+			if (page.size() == limit) {
+				break;
+			}
+			page.add(entry.user);
+		}
+		return page;
+	}
+
+	// the slot is claimed, wait for its writer to fill it
+	User get(int index) {
+		AtomicReferenceArray<User> segment = segmentFor(index);
+		User user;
+		while ((user = segment.get(index & SEGMENT_MASK)) == null) {
+			Thread.yield();
+		}
+		return user;
+	}
+
+	private AtomicReferenceArray<User> segmentFor(int index) {
+		int segment = index >>> SEGMENT_SHIFT;
+		for (;;) {
+			AtomicReferenceArray<User>[] directory = segments.get();
+			if (segment < directory.length) {
+				return directory[segment];
+			}
+			segments.compareAndSet(directory, newDirectory(directory, Math.max(directory.length * 2, segment + 1)));
+		}
+	}
+
+	// copies the existing segment references and allocates the new ones up front, so a segment is never lost to a concurrent grow
+	@SuppressWarnings("unchecked")
+	private static AtomicReferenceArray<User>[] newDirectory(AtomicReferenceArray<User>[] previous, int length) {
+		AtomicReferenceArray<User>[] directory = (AtomicReferenceArray<User>[]) new AtomicReferenceArray<?>[length];
+		int copied = 0;
+		if (previous != null) {
+			System.arraycopy(previous, 0, directory, 0, previous.length);
+			copied = previous.length;
+		}
+		for (int i = copied; i < length; i++) {
+			directory[i] = new AtomicReferenceArray<>(SEGMENT_SIZE);
+		}
+		return directory;
+	}
+
+	private static final class Indexed {
+
+		final User user;
+
+		final int slot;
+
+		Indexed(User user, int slot) {
+			this.user = user;
+			this.slot = slot;
+		}
+
+		static Indexed first(Indexed a, Indexed b) {
+			return a.slot <= b.slot ? a : b;
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package liteRxApiHandsOn.domain.repository;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with HdrHistogram-like log-linear buckets: values below 64 are exact,
+ * larger ones land in one of 32 sub-buckets of their power of two (about 3% relative error) up to {@link Long#MAX_VALUE}.
+ * Recording is one atomic increment, percentiles are computed on read.
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 5;
+
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	private final LongAdder total = new LongAdder();
+
+	private final LongAdder sum = new LongAdder();
+
+	public void record(long value) {
+		long v = Math.max(0L, value);
+		counts.incrementAndGet(indexOf(v));
+		total.increment();
+		sum.add(v);
+	}
+
+	public long count() {
+		return total.sum();
+	}
+
+	public double mean() {
+		long count = total.sum();
+		return count == 0 ? 0.0 : (double) sum.sum() / count;
+	}
+
+	/**
+	 * @param percentile between 0 and 100
+	 * @return the highest value equivalent to the percentile's bucket, 0 when empty
+	 */
+	public long percentile(double percentile) {
+		long[] snapshot = new long[BUCKETS];
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = counts.get(i);
+			count += snapshot[i];
+		}
+		if (count == 0) {
+			return 0L;
+		}
+		long rank = Math.max(1L, (long) Math.ceil(percentile / 100.0 * count));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if (seen >= rank) {
+				return highestEquivalentValue(i);
+			}
+		}
+		return highestEquivalentValue(BUCKETS - 1);
+	}
+
+	public long max() {
+		for (int i = BUCKETS - 1; i >= 0; i--) {
+			if (counts.get(i) != 0) {
+				return highestEquivalentValue(i);
+			}
+		}
+		return 0L;
+	}
+
+	static int indexOf(long value) {
+		if (value < 2 * SUB_BUCKETS) {
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+	}
+
+	static long highestEquivalentValue(int index) {
+		if (index < 2 * SUB_BUCKETS) {
+			return index;
+		}
+		int shift = index / SUB_BUCKETS - 1;
+		long mantissa = SUB_BUCKETS + index % SUB_BUCKETS;
+		long next = (mantissa + 1) << shift;
+		return next < 0 ? Long.MAX_VALUE : next - 1;
+	}
+}
@@ -0,0 +1,152 @@
+package liteRxApiHandsOn.domain.repository;
+
+import java.time.Duration;
+import java.util.Random;
+
+/**
+ * Simulated backend latency: a cost paid before a query starts answering, plus a cost before each row it returns.
+ * <p>
+ * Both receive the current time of the scheduler driving the repository, so time dependent models
+ * (see {@link #withStalls}) are deterministic under a virtual time scheduler. Sampled models take a seed for the same reason.
+ */
+@FunctionalInterface
+public interface LatencyModel {
+
+	/**
+	 * Percentile 99 of the standard normal distribution.
+	 */
+	double Z_99 = 2.3263478740408408;
+
+	long queryNanos(long nowNanos);
+
+	/**
+	 * @param row 0 based index of the row in its query
+	 */
+	default long rowNanos(long nowNanos, long row) {
+		return 0L;
+	}
+
+	static LatencyModel none() {
+		return now -> 0L;
+	}
+
+	/**
+	 * The same delay for every query, whatever the number of rows.
+	 */
+	static LatencyModel constant(Duration perQuery) {
+		return perQueryAndRow(perQuery, Duration.ZERO);
+	}
+
+	/**
+	 * Every row costs {@code perRow}, the original behaviour of the repositories.
+	 */
+	static LatencyModel perRow(Duration perRow) {
+		return perQueryAndRow(Duration.ZERO, perRow);
+	}
+
+	static LatencyModel perQueryAndRow(Duration perQuery, Duration perRow) {
+		long query = perQuery.toNanos();
+		long row = perRow.toNanos();
+		return new LatencyModel() {
+			@Override
+			public long queryNanos(long nowNanos) {
+				return query;
+			}
+
+			@Override
+			public long rowNanos(long nowNanos, long index) {
+				return row;
+			}
+		};
+	}
+
+	/**
+	 * Query latency sampled from the log-normal distribution with that median and percentile 99.
+	 */
+	static LatencyModel logNormal(Duration median, Duration p99, long seed) {
+		if (median.isNegative() || median.isZero() || p99.compareTo(median) < 0) {
+			throw new IllegalArgumentException("expected 0 < median <= p99 but got " + median + " and " + p99);
+		}
+		double mu = Math.log(median.toNanos());
+		double sigma = Math.log((double) p99.toNanos() / median.toNanos()) / Z_99;
+		Random random = new Random(seed);
+		return now -> (long) Math.exp(mu + sigma * random.nextGaussian());
+	}
+
+	/**
+	 * Query latency sampled from an empirical distribution: {@code latencies[i]} is the latency at quantile {@code quantiles[i]},
+	 * values in between are interpolated. Quantiles go from 0 to 1, both arrays ascending, e.g. a production histogram
+	 * {@code {0, 0.5, 0.99, 1} -> {2ms, 5ms, 80ms, 400ms}}.
+	 */
+	static LatencyModel histogram(double[] quantiles, Duration[] latencies, long seed) {
+		if (quantiles.length < 2 || quantiles.length != latencies.length
+				|| quantiles[0] != 0.0 || quantiles[quantiles.length - 1] != 1.0) {
+			throw new IllegalArgumentException("expected as many latencies as quantiles, quantiles going from 0 to 1");
+		}
+		long[] nanos = new long[latencies.length];
+		for (int i = 0; i < nanos.length; i++) {
+			nanos[i] = latencies[i].toNanos();
+			if (i > 0 && (quantiles[i] < quantiles[i - 1] || nanos[i] < nanos[i - 1])) {
+				throw new IllegalArgumentException("quantiles and latencies must be ascending");
+			}
+		}
+		Random random = new Random(seed);
+		return now -> {
+			double u = random.nextDouble();
+			int i = 1;
+			while (quantiles[i] < u) {
+				i++;
+			}
+			double width = quantiles[i] - quantiles[i - 1];
+			double fraction = width == 0.0 ? 1.0 : (u - quantiles[i - 1]) / width;
+			return nanos[i - 1] + (long) (fraction * (nanos[i] - nanos[i - 1]));
+		};
+	}
+
+	/**
+	 * Sums both models, e.g. a sampled query latency plus a per-row cost.
+	 */
+	default LatencyModel plus(LatencyModel other) {
+		LatencyModel self = this;
+		return new LatencyModel() {
+			@Override
+			public long queryNanos(long nowNanos) {
+				return self.queryNanos(nowNanos) + other.queryNanos(nowNanos);
+			}
+
+			@Override
+			public long rowNanos(long nowNanos, long row) {
+				return self.rowNanos(nowNanos, row) + other.rowNanos(nowNanos, row);
+			}
+		};
+	}
+
+	/**
+	 * The backend freezes for {@code stall} at the start of every {@code period} (think GC pause or checkpoint):
+	 * a query or row reaching it during a stall also waits for the end of the stall.
+	 */
+	default LatencyModel withStalls(Duration period, Duration stall) {
+		long periodNanos = period.toNanos();
+		long stallNanos = stall.toNanos();
+		if (periodNanos <= 0 || stallNanos < 0 || stallNanos > periodNanos) {
+			throw new IllegalArgumentException("expected 0 <= stall <= period but got " + stall + " and " + period);
+		}
+		LatencyModel self = this;
+		return new LatencyModel() {
+			@Override
+			public long queryNanos(long nowNanos) {
+				return stalled(nowNanos) + self.queryNanos(nowNanos);
+			}
+
+			@Override
+			public long rowNanos(long nowNanos, long row) {
+				return stalled(nowNanos) + self.rowNanos(nowNanos, row);
+			}
+
+			long stalled(long nowNanos) {
+				long phase = Math.floorMod(nowNanos, periodNanos);
+				return phase < stallNanos ? stallNanos - phase : 0L;
+			}
+		};
+	}
+}
@@ -0,0 +1,577 @@
+package liteRxApiHandsOn.domain.repository;
+
+import hardcore.MappedFilePublisher;
+import liteRxApiHandsOn.domain.User;
+import liteRxApiHandsOn.domain.UserCodec;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Durable {@link UserStore}: reads are served by an in-memory {@link ConcurrentUserStore}, every write is first appended
+ * to a log and is durable when {@code add} returns. Use it behind {@link ReactiveUserRepository} for a persistent repository.
+ * <ul>
+ * <li>a batch only reaches memory once the fsync covering it is done, in log order: readers never see a user a crash would lose</li>
+ * <li>a failed write is cut off the segment and rethrown; if that fails too, or an fsync fails, the store refuses every later write,
+ * {@link #open} cuts whatever was left half written</li>
+ * <li>the log is a series of segment files written through a {@link FileChannel}, a new one starting past {@code segmentBytes}</li>
+ * <li>fsyncs are group committed: a writer waiting for its fsync is covered by the one in progress when it started, or by the next one,
+ * which covers every writer that appended meanwhile</li>
+ * <li>every {@code snapshotEvery} records, a snapshot of every user is written in the background and the segments it covers are deleted</li>
+ * <li>{@link #open} replays the latest snapshot and the log after it with memory-mapped reads, a torn record at the end of the log
+ * (crash during a write) is cut off</li>
+ * </ul>
+ * Snapshots and segments share one record format: a 4 bytes length, then a CRC32 of the user and the user as written by {@link UserCodec}.
+ */
+public class LogUserStore implements UserStore, Closeable {
+
+	public static final long DEFAULT_SEGMENT_BYTES = 64L * 1024 * 1024;
+
+	public static final long DEFAULT_SNAPSHOT_EVERY = 1_000_000;
+
+	private static final String SEGMENT_PREFIX = "segment-";
+
+	private static final String SEGMENT_SUFFIX = ".log";
+
+	private static final String SNAPSHOT_PREFIX = "snapshot-";
+
+	private static final String SNAPSHOT_SUFFIX = ".snap";
+
+	private static final int HEADER_BYTES = 8;
+
+	private final Path directory;
+
+	private final long segmentBytes;
+
+	private final long snapshotEvery;
+
+	private final ConcurrentUserStore users = new ConcurrentUserStore();
+
+	private final Object writeLock = new Object();
+
+	private final Object syncLock = new Object();
+
+	private final Object snapshotLock = new Object();
+
+	// guarded by writeLock
+	private FileChannel segment;
+
+	private long segmentStart;
+
+	private long segmentPosition;
+
+	private ByteBuffer writeBuffer = ByteBuffer.allocateDirect(4096);
+
+	private final CRC32 crc = new CRC32();
+
+	private long recordsSinceSnapshot;
+
+	// users appended to the log, ahead of the memory store until their fsync
+	private long appended;
+
+	// appended but not durable yet, in log order
+	private final ArrayDeque<Pending> pending = new ArrayDeque<>();
+
+	// set when the log may hold a partial write, the store is read only from then on
+	private IOException failure;
+
+	// bytes appended / made durable since the store was opened, across segments
+	private volatile long written;
+
+	private final AtomicLong durable = new AtomicLong();
+
+	private final AtomicLong syncs = new AtomicLong();
+
+	private final AtomicBoolean snapshotScheduled = new AtomicBoolean();
+
+	private final Scheduler snapshotScheduler = Schedulers.newSingle("user-log-snapshot", true);
+
+	private LogUserStore(Path directory, long segmentBytes, long snapshotEvery) {
+		this.directory = directory;
+		this.segmentBytes = segmentBytes;
+		this.snapshotEvery = snapshotEvery;
+	}
+
+	public static LogUserStore open(Path directory) throws IOException {
+		return open(directory, DEFAULT_SEGMENT_BYTES, DEFAULT_SNAPSHOT_EVERY);
+	}
+
+	public static LogUserStore open(Path directory, long segmentBytes, long snapshotEvery) throws IOException {
+		if (segmentBytes <= 0 || snapshotEvery <= 0) {
+			throw new IllegalArgumentException("segmentBytes and snapshotEvery must be positive but they were " + segmentBytes + " and " + snapshotEvery);
+		}
+		Files.createDirectories(directory);
+		LogUserStore store = new LogUserStore(directory, segmentBytes, snapshotEvery);
+		store.recover();
+		return store;
+	}
+
+
+	@Override
+	public void add(User user) {
+		long end;
+		synchronized (writeLock) {
+			end = append(Collections.singletonList(user));
+		}
+		sync(end);
+	}
+
+	/**
+	 * The whole batch is appended with one write and made durable with one fsync.
+	 */
+	@Override
+	public void addAll(Collection<User> batch) {
+		if (batch.isEmpty()) {
+			return;
+		}
+		long end;
+		synchronized (writeLock) {
+			end = append(batch);
+		}
+		sync(end);
+	}
+
+	/**
+	 * Writes wait for their fsync.
+	 */
+	@Override
+	public boolean blocksOnWrite() {
+		return true;
+	}
+
+	@Override
+	public User findByUsername(String username) {
+		return users.findByUsername(username);
+	}
+
+	@Override
+	public User first() {
+		return users.first();
+	}
+
+	@Override
+	public Iterable<User> snapshot() {
+		return users.snapshot();
+	}
+
+	@Override
+	public int size() {
+		return users.size();
+	}
+
+	@Override
+	public List<User> page(String afterUsername, int limit) {
+		return users.page(afterUsername, limit);
+	}
+
+	/**
+	 * How many fsyncs the log needed, group commit makes it lower than the number of writes under concurrency.
+	 */
+	public long syncCount() {
+		return syncs.get();
+	}
+
+	/**
+	 * Writes a snapshot of every user now and deletes the log segments it covers.
+	 */
+	public void checkpoint() throws IOException {
+		synchronized (snapshotLock) {
+			long seq;
+			Iterable<User> covered;
+			// no other batch reaches memory until the snapshot is bounded
+			synchronized (syncLock) {
+				long upTo;
+				synchronized (writeLock) {
+					checkWritable();
+					if (segmentPosition > 0) {
+						roll();
+					}
+					seq = segmentStart;
+					upTo = written;
+					recordsSinceSnapshot = 0;
+				}
+				// rolling made every earlier segment durable, later batches go to the new one
+				publish(upTo);
+				covered = users.snapshot();
+			}
+			writeSnapshot(seq, covered);
+			for (Path file : list(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+				if (seqOf(file, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX) < seq) {
+					Files.deleteIfExists(file);
+				}
+			}
+			for (Path file : list(SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+				if (seqOf(file, SEGMENT_PREFIX, SEGMENT_SUFFIX) < seq) {
+					Files.deleteIfExists(file);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		snapshotScheduler.dispose();
+		synchronized (snapshotLock) {
+			synchronized (writeLock) {
+				if (segment != null) {
+					try {
+						if (failure == null) {
+							segment.force(false);
+						}
+					} finally {
+						segment.close();
+						segment = null;
+					}
+				}
+			}
+		}
+	}
+
+	// ---- writes, the caller holds writeLock
+
+	// returns the logical end of what was written, to sync up to
+	private long append(Collection<User> batch) {
+		checkWritable();
+		ByteBuffer buffer = writeBuffer;
+		((Buffer) buffer).clear();
+		for (User user : batch) {
+			buffer = encode(user, buffer, crc);
+		}
+		writeBuffer = buffer;
+		((Buffer) buffer).flip();
+		int length = buffer.remaining();
+		try {
+			while (buffer.hasRemaining()) {
+				segment.write(buffer);
+			}
+		} catch (IOException e) {
+			cutOff(e);
+			throw new UncheckedIOException(e);
+		}
+		segmentPosition += length;
+		appended += batch.size();
+		recordsSinceSnapshot += batch.size();
+		written += length;
+		long end = written;
+		// log order is memory order, what a snapshot relies on
+		pending.add(new Pending(end, batch));
+		try {
+			if (segmentPosition >= segmentBytes) {
+				roll();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		if (recordsSinceSnapshot >= snapshotEvery && snapshotScheduled.compareAndSet(false, true)) {
+			snapshotScheduler.schedule(this::backgroundCheckpoint);
+		}
+		return end;
+	}
+
+	private void checkWritable() {
+		if (failure != null) {
+			throw new IllegalStateException("the log failed, the store is read only", failure);
+		}
+		if (segment == null) {
+			throw new IllegalStateException("the store is closed");
+		}
+	}
+
+	// removes the part of a failed write that made it to the segment, the next record starts where it did
+	private void cutOff(IOException e) {
+		try {
+			segment.truncate(segmentPosition);
+			segment.position(segmentPosition);
+		} catch (IOException truncateFailed) {
+			e.addSuppressed(truncateFailed);
+			failure = e;
+		}
+	}
+
+	private void roll() throws IOException {
+		try {
+			segment.force(false);
+			durable.accumulateAndGet(written, Math::max);
+			segment.close();
+			// the next segment is named after the sequence number of its first user
+			openSegment(appended);
+		} catch (IOException e) {
+			failure = e;
+			throw e;
+		}
+	}
+
+	private void openSegment(long start) throws IOException {
+		segment = FileChannel.open(segmentPath(start), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		segment.position(segment.size());
+		segmentStart = start;
+		segmentPosition = segment.size();
+	}
+
+	// ---- group commit
+
+	private void sync(long end) {
+		synchronized (syncLock) {
+			// else someone else's fsync covered us while we waited
+			if (durable.get() < end) {
+				force();
+			}
+			publish(durable.get());
+		}
+	}
+
+	// under syncLock
+	private void force() {
+		long target;
+		FileChannel channel;
+		synchronized (writeLock) {
+			target = written;
+			channel = segment;
+		}
+		try {
+			if (channel != null) {
+				channel.force(false);
+				syncs.incrementAndGet();
+			}
+		} catch (ClosedChannelException closed) {
+			synchronized (writeLock) {
+				if (segment == channel) {
+					// not rolled: closed under us, by an interrupt for instance
+					failure = closed;
+					throw new UncheckedIOException(closed);
+				}
+			}
+			// the segment was rolled meanwhile, rolling forced it
+		} catch (IOException e) {
+			synchronized (writeLock) {
+				failure = e;
+			}
+			throw new UncheckedIOException(e);
+		}
+		durable.accumulateAndGet(target, Math::max);
+	}
+
+	// under syncLock, the only place users reach memory once the store is open: moves the batches logged up to upTo
+	private void publish(long upTo) {
+		List<Collection<User>> ready = new ArrayList<>();
+		synchronized (writeLock) {
+			while (!pending.isEmpty() && pending.peek().end <= upTo) {
+				ready.add(pending.poll().batch);
+			}
+		}
+		for (Collection<User> batch : ready) {
+			users.addAll(batch);
+		}
+	}
+
+	private static final class Pending {
+
+		// logical end of the batch in the log
+		final long end;
+
+		final Collection<User> batch;
+
+		Pending(long end, Collection<User> batch) {
+			this.end = end;
+			this.batch = batch;
+		}
+	}
+
+	// ---- snapshots
+
+	private void backgroundCheckpoint() {
+		try {
+			checkpoint();
+		} catch (IOException | RuntimeException e) {
+			// the log still has everything, the next threshold retries
+		} finally {
+			snapshotScheduled.set(false);
+		}
+	}
+
+	private void writeSnapshot(long seq, Iterable<User> covered) throws IOException {
+		Path target = snapshotPath(seq);
+		Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+		// the snapshot runs beside the writers, it has its own CRC
+		CRC32 snapshotCrc = new CRC32();
+		try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(1024 * 1024);
+			for (User user : covered) {
+				if (buffer.remaining() < 64 * 1024) {
+					((Buffer) buffer).flip();
+					while (buffer.hasRemaining()) {
+						channel.write(buffer);
+					}
+					((Buffer) buffer).clear();
+				}
+				buffer = encode(user, buffer, snapshotCrc);
+			}
+			((Buffer) buffer).flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			channel.force(true);
+		}
+		Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	// appends one record, returns a bigger buffer holding what was there if it did not fit
+	private static ByteBuffer encode(User user, ByteBuffer buffer, CRC32 crc) {
+		int record = HEADER_BYTES + UserCodec.encodedLength(user);
+		if (buffer.remaining() < record) {
+			ByteBuffer bigger = ByteBuffer.allocateDirect(Math.max(buffer.capacity() * 2, buffer.position() + record));
+			((Buffer) buffer).flip();
+			bigger.put(buffer);
+			buffer = bigger;
+		}
+		int start = buffer.position();
+		buffer.putInt(record - 4);
+		buffer.putInt(0);
+		UserCodec.encode(user, buffer);
+		ByteBuffer fields = buffer.duplicate();
+		// Buffer casts keep the Java 8 signatures
+		((Buffer) fields).position(start + HEADER_BYTES);
+		((Buffer) fields).limit(buffer.position());
+		crc.reset();
+		crc.update(fields);
+		buffer.putInt(start + 4, (int) crc.getValue());
+		return buffer;
+	}
+
+	// ---- recovery
+
+	private void recover() throws IOException {
+		for (Path tmp : list(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX + ".tmp")) {
+			Files.deleteIfExists(tmp);
+		}
+		List<Path> snapshots = list(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+		if (!snapshots.isEmpty()) {
+			Path latest = snapshots.get(snapshots.size() - 1);
+			long seq = seqOf(latest, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+			Replay replay = replay(latest, 0, users::add);
+			if (replay.error != null || users.size() != seq) {
+				throw new IOException("corrupt snapshot " + latest, replay.error);
+			}
+		}
+
+		List<Path> segments = list(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+		for (int i = 0; i < segments.size(); i++) {
+			Path file = segments.get(i);
+			long start = seqOf(file, SEGMENT_PREFIX, SEGMENT_SUFFIX);
+			long next = users.size();
+			if (start > next) {
+				throw new IOException("log records " + next + " to " + (start - 1) + " are missing before " + file);
+			}
+			boolean last = i == segments.size() - 1;
+			if (!last && seqOf(segments.get(i + 1), SEGMENT_PREFIX, SEGMENT_SUFFIX) <= next) {
+				// fully covered by the snapshot, left over by a crash during a checkpoint
+				Files.deleteIfExists(file);
+				continue;
+			}
+			Replay replay = replay(file, next - start, users::add);
+			if (replay.error != null) {
+				if (!last) {
+					throw new IOException("corrupt log segment " + file, replay.error);
+				}
+				try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+					// torn write of the last record(s), they were never acknowledged
+					channel.truncate(replay.validBytes);
+					channel.force(true);
+				}
+			}
+			if (last) {
+				appended = users.size();
+				openSegment(start);
+				return;
+			}
+		}
+		appended = users.size();
+		openSegment(appended);
+	}
+
+	private static Replay replay(Path file, long skip, Consumer<User> sink) {
+		Replay replay = new Replay();
+		CRC32 crc = new CRC32();
+		long[] seen = new long[1];
+		MappedFilePublisher<User> records = MappedFilePublisher.lengthPrefixed(file, record -> {
+			int length = record.remaining();
+			int expected = record.getInt();
+			crc.reset();
+			crc.update(record.duplicate());
+			if ((int) crc.getValue() != expected) {
+				throw new IllegalStateException("checksum mismatch at offset " + replay.validBytes);
+			}
+			User user = UserCodec.decode(record);
+			replay.validBytes += 4 + length;
+			return user;
+		});
+		try {
+			Flux.from(records)
+					.doOnNext(user -> {
+						if (seen[0]++ >= skip) {
+							sink.accept(user);
+						}
+					})
+					.blockLast();
+		} catch (RuntimeException e) {
+			replay.error = e;
+		}
+		return replay;
+	}
+
+	private static final class Replay {
+
+		long validBytes;
+
+		RuntimeException error;
+	}
+
+	// ---- files
+
+	private Path segmentPath(long start) {
+		return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, start, SEGMENT_SUFFIX));
+	}
+
+	private Path snapshotPath(long seq) {
+		return directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, seq, SNAPSHOT_SUFFIX));
+	}
+
+	// sorted by sequence number, zero padding makes it the name order
+	private List<Path> list(String prefix, String suffix) throws IOException {
+		List<Path> files = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+			for (Path file : stream) {
+				files.add(file);
+			}
+		}
+		Collections.sort(files);
+		return files;
+	}
+
+	private static long seqOf(Path file, String prefix, String suffix) {
+		String name = file.getFileName().toString();
+		return Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length()));
+	}
+}
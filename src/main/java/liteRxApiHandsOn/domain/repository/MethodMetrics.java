@@ -0,0 +1,126 @@
+package liteRxApiHandsOn.domain.repository;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Calls, errors, calls in flight and latency of one repository method.
+ * The hot path is {@link #start()} then {@link #success(long)} or {@link #failure(long)}: a few {@link LongAdder}
+ * updates and one histogram increment, no lock.
+ */
+public class MethodMetrics {
+
+	private final LongAdder calls = new LongAdder();
+
+	private final LongAdder errors = new LongAdder();
+
+	private final LongAdder inFlight = new LongAdder();
+
+	private final LatencyHistogram latency = new LatencyHistogram();
+
+	/**
+	 * @return the start time to hand back to {@link #success} or {@link #failure}
+	 */
+	public long start() {
+		calls.increment();
+		inFlight.increment();
+		return System.nanoTime();
+	}
+
+	public void success(long start) {
+		inFlight.decrement();
+		latency.record(System.nanoTime() - start);
+	}
+
+	public void failure(long start) {
+		errors.increment();
+		success(start);
+	}
+
+	public long calls() {
+		return calls.sum();
+	}
+
+	public Snapshot snapshot() {
+		return new Snapshot(calls.sum(), errors.sum(), inFlight.sum(), latency.mean(),
+				latency.percentile(50), latency.percentile(90), latency.percentile(99), latency.percentile(99.9), latency.max());
+	}
+
+	/**
+	 * Latencies in nanoseconds. The getters also make it an open type, readable through JMX.
+	 */
+	public static final class Snapshot {
+
+		private final long calls;
+
+		private final long errors;
+
+		private final long inFlight;
+
+		private final double meanNanos;
+
+		private final long p50Nanos;
+
+		private final long p90Nanos;
+
+		private final long p99Nanos;
+
+		private final long p999Nanos;
+
+		private final long maxNanos;
+
+		Snapshot(long calls, long errors, long inFlight, double meanNanos,
+				long p50Nanos, long p90Nanos, long p99Nanos, long p999Nanos, long maxNanos) {
+			this.calls = calls;
+			this.errors = errors;
+			this.inFlight = inFlight;
+			this.meanNanos = meanNanos;
+			this.p50Nanos = p50Nanos;
+			this.p90Nanos = p90Nanos;
+			this.p99Nanos = p99Nanos;
+			this.p999Nanos = p999Nanos;
+			this.maxNanos = maxNanos;
+		}
+
+		public long getCalls() {
+			return calls;
+		}
+
+		public long getErrors() {
+			return errors;
+		}
+
+		public long getInFlight() {
+			return inFlight;
+		}
+
+		public double getMeanNanos() {
+			return meanNanos;
+		}
+
+		public long getP50Nanos() {
+			return p50Nanos;
+		}
+
+		public long getP90Nanos() {
+			return p90Nanos;
+		}
+
+		public long getP99Nanos() {
+			return p99Nanos;
+		}
+
+		public long getP999Nanos() {
+			return p999Nanos;
+		}
+
+		public long getMaxNanos() {
+			return maxNanos;
+		}
+
+		@Override
+		public String toString() {
+			return "calls=" + calls + ", errors=" + errors + ", inFlight=" + inFlight
+					+ ", p50=" + p50Nanos / 1000 + "us, p99=" + p99Nanos / 1000 + "us, max=" + maxNanos / 1000 + "us";
+		}
+	}
+}
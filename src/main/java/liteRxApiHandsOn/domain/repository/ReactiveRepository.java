@@ -4,13 +4,41 @@ import org.reactivestreams.Publisher;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.Collection;
+
 public interface ReactiveRepository<T> {
 
 	Mono<Void> save(Publisher<T> publisher);
 
+	/**
+	 * Saves in batches of at most {@code maxBatchSize} values, a batch being cut early when {@code maxWait}
+	 * elapsed since its first value. Each batch is committed in one storage operation.
+	 *
+	 * @return one acknowledgement per committed batch, in order
+	 */
+	Flux<BatchAck> saveAll(Publisher<T> publisher, int maxBatchSize, Duration maxWait);
+
 	Mono<T> findFirst();
 
 	Flux<T> findAll();
 
+	/**
+	 * One page of a keyset pagination, ordered by id: at most {@code limit} values whose id comes right after
+	 * {@code afterId} (from the start when null). Resume with the id of the last value of the page.
+	 */
+	Flux<T> findAll(String afterId, int limit);
+
+	/**
+	 * Every value after {@code afterId}, ordered by id, fetched one page of {@code pageSize} at a time
+	 * as the downstream requests them.
+	 */
+	Flux<T> findAllByCursor(String afterId, int pageSize);
+
 	Mono<T> findById(String id);
+
+	/**
+	 * One bulk query for several ids: the values found, in the order of their first id, ids without value are skipped.
+	 */
+	Flux<T> findAllById(Collection<String> ids);
 }
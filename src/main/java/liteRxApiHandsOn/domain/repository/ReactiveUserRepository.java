@@ -5,19 +5,39 @@ import liteRxApiHandsOn.domain.User;
 import org.reactivestreams.Publisher;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
 import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public class ReactiveUserRepository implements ReactiveRepository<User> {
 
+	/**
+	 * What {@link #findById(String)} emits for an unknown username.
+	 */
+	public enum MissBehavior {
+		/** a stackless {@link UserNotFoundException} */
+		ERROR,
+		/** an empty {@link Mono} */
+		EMPTY
+	}
+
 	private final static long DEFAULT_DELAY_IN_MS = 100;
 
-	private final long delayInMs;
+	private final LatencyModel latency;
+
+	private final Scheduler scheduler;
+
+	private final UserStore users;
+
+	private final MissBehavior missBehavior;
 
-	private final List<User> users;
+	private final RepositoryMetrics metrics = new RepositoryMetrics();
 
 
 	public ReactiveUserRepository() {
@@ -25,8 +45,7 @@ public class ReactiveUserRepository implements ReactiveRepository<User> {
 	}
 
 	public ReactiveUserRepository(long delayInMs) {
-		this.delayInMs = delayInMs;
-		users = new ArrayList<>(Arrays.asList(User.SKYLER, User.JESSE, User.WALTER, User.SAUL));
+		this(delayInMs, User.SKYLER, User.JESSE, User.WALTER, User.SAUL);
 	}
 
 	public ReactiveUserRepository(User... users) {
@@ -34,45 +53,149 @@ public class ReactiveUserRepository implements ReactiveRepository<User> {
 	}
 
 	public ReactiveUserRepository(long delayInMs, User... users) {
-		this.delayInMs = delayInMs;
-		this.users = new ArrayList<>(Arrays.asList(users));
+		this(delayInMs, MissBehavior.ERROR, users);
+	}
+
+	public ReactiveUserRepository(long delayInMs, MissBehavior missBehavior, User... users) {
+		this(delayInMs, missBehavior, new ConcurrentUserStore(users));
+	}
+
+	public ReactiveUserRepository(long delayInMs, MissBehavior missBehavior, UserStore store) {
+		this(LatencyModel.perRow(Duration.ofMillis(delayInMs)), Schedulers.parallel(), missBehavior, store);
+	}
+
+	/**
+	 * @param scheduler drives the simulated latency, a virtual time scheduler makes it deterministic
+	 */
+	public ReactiveUserRepository(LatencyModel latency, Scheduler scheduler, MissBehavior missBehavior, UserStore store) {
+		this.latency = latency;
+		this.scheduler = scheduler;
+		this.missBehavior = missBehavior;
+		this.users = store;
 	}
 
 
 	@Override
 	public Mono<Void> save(Publisher<User> userPublisher) {
-		return withDelay(Flux.from(userPublisher)).doOnNext(users::add).then();
+		return metrics.timed("save", offloadWrites(withDelay(Flux.from(userPublisher))).doOnNext(users::add).then());
+	}
+
+	/**
+	 * The simulated latency is paid once per batch instead of once per user.
+	 */
+	@Override
+	public Flux<BatchAck> saveAll(Publisher<User> userPublisher, int maxBatchSize, Duration maxWait) {
+		return metrics.timed("saveAll", Flux.from(userPublisher)
+				.bufferTimeout(maxBatchSize, maxWait)
+				// bufferTimeout does not honour backpressure, keep the batches waiting for the previous commit
+				.onBackpressureBuffer()
+				.index()
+				.concatMap(batch -> withDelay(offloadWrite(Mono.fromSupplier(() -> {
+					users.addAll(batch.getT2());
+					return new BatchAck(batch.getT1(), batch.getT2().size());
+				})))));
+	}
+
+	// the latency scheduler (parallel by default) must not wait for a store's disk
+	private <V> Mono<V> offloadWrite(Mono<V> write) {
+		return users.blocksOnWrite() ? write.subscribeOn(Schedulers.boundedElastic()) : write;
+	}
+
+	private Flux<User> offloadWrites(Flux<User> delivered) {
+		return users.blocksOnWrite() ? delivered.publishOn(Schedulers.boundedElastic()) : delivered;
 	}
 
 	@Override
 	public Mono<User> findFirst() {
-		return withDelay(Mono.just(users.get(0)));
+		return metrics.timed("findFirst", withDelay(Mono.fromSupplier(users::first)));
 	}
 
 	@Override
 	public Flux<User> findAll() {
-		return withDelay(Flux.fromIterable(users));
+		return metrics.timed("findAll", withDelay(Flux.defer(() -> Flux.fromIterable(users.snapshot()))));
+	}
+
+	@Override
+	public Flux<User> findAll(String afterUsername, int limit) {
+		checkPageSize(limit);
+		return metrics.timed("findAllPage", withDelay(Flux.defer(() -> Flux.fromIterable(users.page(afterUsername, limit)))));
+	}
+
+	@Override
+	public Flux<User> findAllByCursor(String afterUsername, int pageSize) {
+		checkPageSize(pageSize);
+		// a short page is the last one. Memory stays bounded: besides the page being drained,
+		// one page waits in concatMapIterable and expand fetches the next one
+		// (at most two pages ahead of the downstream)
+		return metrics.timed("findAllByCursor", findAll(afterUsername, pageSize)
+				.collectList()
+				.expand(page -> page.size() < pageSize
+						? Mono.empty()
+						: findAll(page.get(page.size() - 1).getUsername(), pageSize).collectList())
+				.concatMapIterable(page -> page, 1));
+	}
+
+	private static void checkPageSize(int pageSize) {
+		if (pageSize <= 0) {
+			throw new IllegalArgumentException("page size must be positive but it was " + pageSize);
+		}
 	}
 
 	@Override
 	public Mono<User> findById(String username) {
-		User user = users.stream().filter((p) -> p.getUsername().equals(username))
-				.findFirst()
-				.orElseThrow(() -> new IllegalArgumentException("No user with username " + username + " found!"));
-		return withDelay(Mono.just(user));
+		return metrics.timed("findById", Mono.defer(() -> {
+			User user = users.findByUsername(username);
+			if (user == null) {
+				return missBehavior == MissBehavior.EMPTY ? Mono.empty() : Mono.error(new UserNotFoundException(username));
+			}
+			return withDelay(Mono.just(user));
+		}));
+	}
+
+	@Override
+	public Flux<User> findAllById(Collection<String> usernames) {
+		return metrics.timed("findAllById", withDelay(Flux.defer(() -> {
+			List<User> found = new ArrayList<>(usernames.size());
+			for (String username : new LinkedHashSet<>(usernames)) {
+				User user = users.findByUsername(username);
+				if (user != null) {
+					found.add(user);
+				}
+			}
+			return Flux.fromIterable(found);
+		})));
+	}
+
+
+	public RepositoryMetrics metrics() {
+		return metrics;
 	}
 
 
-	private Mono<User> withDelay(Mono<User> userMono) {
-		return Mono
-				.delay(Duration.ofMillis(delayInMs))
-				.flatMap(c -> userMono);
+	// a single result: one query returning one row
+	private <V> Mono<V> withDelay(Mono<V> mono) {
+		return Mono.defer(() -> {
+			long now = now();
+			long query = latency.queryNanos(now);
+			// the row is reached once the query latency elapsed
+			return delay(query + latency.rowNanos(now + query, 0)).then(mono);
+		});
 	}
 
 	private Flux<User> withDelay(Flux<User> userFlux) {
-		return Flux
-				.interval(Duration.ofMillis(delayInMs))
-				.zipWith(userFlux, (i, user) -> user);
+		return Flux.defer(() -> {
+			long[] row = new long[1];
+			Flux<User> rows = userFlux.concatMap(user -> delay(latency.rowNanos(now(), row[0]++)).thenReturn(user));
+			return delay(latency.queryNanos(now())).thenMany(rows);
+		});
+	}
+
+	private Mono<?> delay(long nanos) {
+		return nanos <= 0 ? Mono.empty() : Mono.delay(Duration.ofNanos(nanos), scheduler);
+	}
+
+	private long now() {
+		return scheduler.now(TimeUnit.NANOSECONDS);
 	}
 
 }
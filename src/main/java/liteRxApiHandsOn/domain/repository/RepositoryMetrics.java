@@ -0,0 +1,89 @@
+package liteRxApiHandsOn.domain.repository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Per-method {@link MethodMetrics} of a repository, readable with {@link #snapshot()} or through JMX.
+ * Reactive calls are timed from subscription to termination or cancellation.
+ */
+public class RepositoryMetrics implements RepositoryMetricsMXBean {
+
+	private final ConcurrentMap<String, MethodMetrics> methods = new ConcurrentHashMap<>();
+
+	public MethodMetrics method(String name) {
+		MethodMetrics metrics = methods.get(name);
+		return metrics != null ? metrics : methods.computeIfAbsent(name, n -> new MethodMetrics());
+	}
+
+	public <T> Mono<T> timed(String method, Mono<T> mono) {
+		MethodMetrics metrics = method(method);
+		return Mono.defer(() -> {
+			long start = metrics.start();
+			return mono.doFinally(signal -> end(metrics, start, signal));
+		});
+	}
+
+	public <T> Flux<T> timed(String method, Flux<T> flux) {
+		MethodMetrics metrics = method(method);
+		return Flux.defer(() -> {
+			long start = metrics.start();
+			return flux.doFinally(signal -> end(metrics, start, signal));
+		});
+	}
+
+	/**
+	 * @return method name to its metrics, sorted by name
+	 */
+	public Map<String, MethodMetrics.Snapshot> snapshot() {
+		Map<String, MethodMetrics.Snapshot> snapshot = new TreeMap<>();
+		methods.forEach((name, metrics) -> snapshot.put(name, metrics.snapshot()));
+		return snapshot;
+	}
+
+	@Override
+	public Map<String, MethodMetrics.Snapshot> getMethods() {
+		return snapshot();
+	}
+
+	@Override
+	public long getTotalCalls() {
+		long calls = 0;
+		for (MethodMetrics metrics : methods.values()) {
+			calls += metrics.calls();
+		}
+		return calls;
+	}
+
+	/**
+	 * Registers these metrics in the platform MBean server as {@code liteRxApiHandsOn:type=RepositoryMetrics,name=<name>}.
+	 *
+	 * @return the name to unregister them with
+	 */
+	public ObjectName registerMBean(String name) {
+		try {
+			ObjectName objectName = new ObjectName("liteRxApiHandsOn:type=RepositoryMetrics,name=" + ObjectName.quote(name));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+			return objectName;
+		} catch (JMException e) {
+			throw new IllegalStateException("could not register the metrics of " + name, e);
+		}
+	}
+
+	private static void end(MethodMetrics metrics, long start, SignalType signal) {
+		if (signal == SignalType.ON_ERROR) {
+			metrics.failure(start);
+		} else {
+			metrics.success(start);
+		}
+	}
+}
@@ -0,0 +1,13 @@
+package liteRxApiHandsOn.domain.repository;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link RepositoryMetrics}, see {@link RepositoryMetrics#registerMBean(String)}.
+ */
+public interface RepositoryMetricsMXBean {
+
+	Map<String, MethodMetrics.Snapshot> getMethods();
+
+	long getTotalCalls();
+}
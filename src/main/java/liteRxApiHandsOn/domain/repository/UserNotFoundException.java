@@ -0,0 +1,30 @@
+package liteRxApiHandsOn.domain.repository;
+
+/**
+ * Signalled by {@link ReactiveUserRepository#findById(String)} on a miss.
+ * It carries no stack trace and only builds its message when asked, so a miss costs one small allocation.
+ */
+public class UserNotFoundException extends IllegalArgumentException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final String username;
+
+	public UserNotFoundException(String username) {
+		this.username = username;
+	}
+
+	public String getUsername() {
+		return username;
+	}
+
+	@Override
+	public String getMessage() {
+		return "No user with username " + username + " found!";
+	}
+
+	@Override
+	public synchronized Throwable fillInStackTrace() {
+		return this;
+	}
+}
@@ -0,0 +1,74 @@
+package liteRxApiHandsOn.domain.repository;
+
+import liteRxApiHandsOn.domain.User;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Storage engine behind {@link ReactiveUserRepository}: users in insertion order plus a username index.
+ * Implementations are safe for concurrent readers and writers.
+ */
+public interface UserStore {
+
+	void add(User user);
+
+	/**
+	 * Stores a batch, implementations make it one storage operation when they can.
+	 */
+	default void addAll(Collection<User> users) {
+		for (User user : users) {
+			add(user);
+		}
+	}
+
+	/**
+	 * True when {@link #add} and {@link #addAll} wait for I/O: {@link ReactiveUserRepository} then calls them on
+	 * {@link reactor.core.scheduler.Schedulers#boundedElastic()} rather than on the thread delivering the users.
+	 */
+	default boolean blocksOnWrite() {
+		return false;
+	}
+
+	/**
+	 * @return the first user stored with that username, or null
+	 */
+	User findByUsername(String username);
+
+	/**
+	 * @return the first user stored, or null when empty
+	 */
+	User first();
+
+	/**
+	 * A point-in-time view: the users stored when this method was called, in insertion order,
+	 * whatever is added while iterating.
+	 */
+	Iterable<User> snapshot();
+
+	int size();
+
+	/**
+	 * Keyset pagination: at most {@code limit} users in username order, starting right after {@code afterUsername}
+	 * (from the first one when null). Like {@link #findByUsername}, only the first user stored with a username is listed.
+	 * This fallback sorts the whole store, implementations keeping a sorted index answer in O(log n + limit).
+	 */
+	default List<User> page(String afterUsername, int limit) {
+		TreeMap<String, User> sorted = new TreeMap<>();
+		for (User user : snapshot()) {
+			if (afterUsername == null || user.getUsername().compareTo(afterUsername) > 0) {
+				sorted.putIfAbsent(user.getUsername(), user);
+			}
+		}
+		List<User> page = new ArrayList<>(Math.min(limit, sorted.size()));
+		for (User user : sorted.values()) {
+			if (page.size() == limit) {
+				break;
+			}
+			page.add(user);
+		}
+		return page;
+	}
+}
@@ -0,0 +1,120 @@
+package hardcore;
+
+
+import org.assertj.core.api.Assertions;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.LongStream;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+
+public class ArrayBatchPublisherTest {
+    static Long[] generate(long num){
+        return LongStream.range(0, num)
+                .boxed()
+                .toArray(Long[]::new);
+    }
+
+    static class CollectingSubscriber implements Subscriber<ArraySlice<Long>> {
+        final List<List<Long>> batches = new ArrayList<>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        Subscription s;
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            this.s = s;
+        }
+
+        @Override
+        public void onNext(ArraySlice<Long> slice) {
+            batches.add(new ArrayList<>(slice));
+        }
+
+        @Override
+        public void onError(Throwable t) {
+
+        }
+
+        @Override
+        public void onComplete() {
+            latch.countDown();
+        }
+    }
+
+    @Test
+    public void demandInBatches() throws InterruptedException {
+        CollectingSubscriber sub = new CollectingSubscriber();
+        new ArrayPublisherThreadSafe<>(generate(7)).batched(3).subscribe(sub);
+
+        sub.s.request(1);
+        Assertions.assertThat(sub.batches).containsExactly(Arrays.asList(0L, 1L, 2L));
+
+        sub.s.request(2);
+        Assertions.assertThat(sub.latch.await(1, SECONDS)).isTrue();
+        Assertions.assertThat(sub.batches).hasSize(3);
+        Assertions.assertThat(sub.batches.get(2)).containsExactly(6L);
+    }
+
+    @Test
+    public void demandInElementsNeverOverflowsTheRequest() throws InterruptedException {
+        CollectingSubscriber sub = new CollectingSubscriber();
+        new ArrayBatchPublisher<>(generate(10), 4, ArrayBatchPublisher.Demand.ELEMENTS).subscribe(sub);
+
+        sub.s.request(6);
+        Assertions.assertThat(sub.batches).containsExactly(
+                Arrays.asList(0L, 1L, 2L, 3L),
+                Arrays.asList(4L, 5L));
+
+        sub.s.request(Long.MAX_VALUE);
+        Assertions.assertThat(sub.latch.await(1, SECONDS)).isTrue();
+        Assertions.assertThat(sub.batches).hasSize(3);
+        Assertions.assertThat(sub.batches.get(2)).containsExactly(6L, 7L, 8L, 9L);
+    }
+
+    @Test
+    public void slicesAreReadOnlyViews() {
+        Long[] array = generate(5);
+        List<ArraySlice<Long>> slices = new ArrayList<>();
+
+        new ArrayBatchPublisher<>(array, 2).subscribe(new Subscriber<ArraySlice<Long>>() {
+            @Override
+            public void onSubscribe(Subscription s) {
+                s.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(ArraySlice<Long> slice) {
+                slices.add(slice);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+
+            }
+
+            @Override
+            public void onComplete() {
+
+            }
+        });
+
+        ArraySlice<Long> second = slices.get(1);
+        Assertions.assertThat(second.offset()).isEqualTo(2);
+        Assertions.assertThat(second.length()).isEqualTo(2);
+
+        // zero copy: the slice sees the backing array
+        array[3] = 42L;
+        Assertions.assertThat(second).containsExactly(2L, 42L);
+
+        Assertions.assertThatThrownBy(() -> second.set(0, 1L))
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+}
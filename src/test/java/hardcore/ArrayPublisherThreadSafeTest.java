@@ -5,6 +5,9 @@ import org.assertj.core.api.Assertions;
 import org.reactivestreams.Subscriber;
 import org.reactivestreams.Subscription;
 import org.testng.annotations.Test;
+import reactor.core.Fuseable;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -58,9 +61,230 @@ public class ArrayPublisherThreadSafeTest {
             }
         });
 
-        latch.await(2, SECONDS);
+        Assertions.assertThat(latch.await(2, SECONDS)).isTrue();
 
         Assertions.assertThat(collected).containsExactly(array);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void mustCompleteForAnyDemandPattern() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        ArrayList<Long> collected = new ArrayList<>();
+        Long[] array = generate(5);
+        ArrayPublisherThreadSafe<Long> publisher = new ArrayPublisherThreadSafe<>(array);
+        Subscription[] subscription = new Subscription[1];
+
+        publisher.subscribe(new Subscriber<Long>() {
+            @Override
+            public void onSubscribe(Subscription s) {
+                subscription[0] = s;
+            }
+
+            @Override
+            public void onNext(Long aLong) {
+                collected.add(aLong);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+
+            }
+
+            @Override
+            public void onComplete() {
+                latch.countDown();
+            }
+        });
+
+        subscription[0].request(2);
+        subscription[0].request(2);
+        Assertions.assertThat(latch.getCount()).isEqualTo(1);
+
+        // exactly the remaining element, neither n == array.length nor a surplus
+        subscription[0].request(1);
+
+        Assertions.assertThat(latch.await(1, SECONDS)).isTrue();
+        Assertions.assertThat(collected).containsExactly(array);
+    }
+
+    @Test
+    public void mustEmitEverythingOnUnboundedRequest() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        ArrayList<Long> collected = new ArrayList<>();
+        Long[] array = generate(1000);
+        ArrayPublisherThreadSafe<Long> publisher = new ArrayPublisherThreadSafe<>(array);
+
+        publisher.subscribe(new Subscriber<Long>() {
+            Subscription s;
+
+            @Override
+            public void onSubscribe(Subscription s) {
+                this.s = s;
+                s.request(1);
+            }
+
+            @Override
+            public void onNext(Long aLong) {
+                collected.add(aLong);
+                // switch to unbounded in the middle of the stream, then overflow it
+                s.request(Long.MAX_VALUE);
+                s.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+
+            }
+
+            @Override
+            public void onComplete() {
+                latch.countDown();
+            }
+        });
+
+        Assertions.assertThat(latch.await(1, SECONDS)).isTrue();
+        Assertions.assertThat(collected).containsExactly(array);
+    }
+
+    @Test
+    public void shouldStopEmittingWhenCancelledInOnNext() {
+        ArrayList<Long> collected = new ArrayList<>();
+        ArrayPublisherThreadSafe<Long> publisher = new ArrayPublisherThreadSafe<>(generate(100));
+
+        publisher.subscribe(new Subscriber<Long>() {
+            Subscription s;
+
+            @Override
+            public void onSubscribe(Subscription s) {
+                this.s = s;
+                s.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(Long aLong) {
+                collected.add(aLong);
+                if (aLong == 2L) {
+                    s.cancel();
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+
+            }
+
+            @Override
+            public void onComplete() {
+
+            }
+        });
+
+        Assertions.assertThat(collected).containsExactly(0L, 1L, 2L);
+    }
+
+    @Test
+    public void mustSignalErrorOnNonPositiveRequest() {
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        ArrayPublisherThreadSafe<Long> publisher = new ArrayPublisherThreadSafe<>(generate(10));
+
+        publisher.subscribe(new Subscriber<Long>() {
+            @Override
+            public void onSubscribe(Subscription s) {
+                s.request(0);
+            }
+
+            @Override
+            public void onNext(Long aLong) {
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                error.set(t);
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+
+        Assertions.assertThat(error.get()).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void mustSyncFuseWithReactorOperators() {
+        ArrayPublisherThreadSafe<Long> publisher = new ArrayPublisherThreadSafe<>(generate(5));
+
+        StepVerifier.create(Flux.from(publisher).map(l -> l * 10))
+                .expectFusion(Fuseable.SYNC)
+                .expectNext(0L, 10L, 20L, 30L, 40L)
+                .verifyComplete();
+    }
+
+    @Test
+    public void mustSignalNpeFromPollWhenFused() {
+        ArrayPublisherThreadSafe<Long> publisher = new ArrayPublisherThreadSafe<>(new Long[]{1L, null});
+
+        StepVerifier.create(Flux.from(publisher).filter(l -> true))
+                .expectFusion(Fuseable.SYNC)
+                .expectNext(1L)
+                .verifyError(NullPointerException.class);
+    }
+
+    @Test
+    public void mustStillWorkWhenFusionIsRefused() {
+        ArrayPublisherThreadSafe<Long> publisher = new ArrayPublisherThreadSafe<>(generate(3));
+
+        StepVerifier.create(Flux.from(publisher).hide(), 0)
+                .expectNoFusionSupport()
+                .thenRequest(3)
+                .expectNext(0L, 1L, 2L)
+                .verifyComplete();
+    }
+
+    @Test
+    public void conditionalSubscriberMustOnlyPayForAcceptedElements() {
+        ArrayList<Long> tried = new ArrayList<>();
+        ArrayList<Long> accepted = new ArrayList<>();
+        ArrayPublisherThreadSafe<Long> publisher = new ArrayPublisherThreadSafe<>(generate(10));
+        Subscription[] subscription = new Subscription[1];
+
+        publisher.subscribe(new Fuseable.ConditionalSubscriber<Long>() {
+            @Override
+            public void onSubscribe(Subscription s) {
+                subscription[0] = s;
+            }
+
+            @Override
+            public boolean tryOnNext(Long aLong) {
+                tried.add(aLong);
+                if (aLong % 3 == 0) {
+                    accepted.add(aLong);
+                    return true;
+                }
+                return false;
+            }
+
+            @Override
+            public void onNext(Long aLong) {
+                throw new AssertionError("onNext called with " + aLong);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+
+            }
+
+            @Override
+            public void onComplete() {
+
+            }
+        });
+
+        // two accepted elements, the rejected ones in between are free
+        subscription[0].request(2);
+
+        Assertions.assertThat(accepted).containsExactly(0L, 3L);
+        Assertions.assertThat(tried).containsExactly(0L, 1L, 2L, 3L);
+    }
+
+}
@@ -0,0 +1,186 @@
+package hardcore;
+
+
+import org.assertj.core.api.Assertions;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.testng.annotations.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+public class MappedFilePublisherTest {
+
+    static Path longs(int count) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(count * 8);
+        for (long i = 0; i < count; i++) {
+            buffer.putLong(i);
+        }
+        Path file = Files.createTempFile("longs", ".bin");
+        file.toFile().deleteOnExit();
+        Files.write(file, buffer.array());
+        return file;
+    }
+
+    @Test
+    public void fixedLengthRecordsAcrossSegments() throws IOException {
+        // 3 records per segment
+        MappedFilePublisher<Long> publisher = MappedFilePublisher.fixedLength(longs(10), 8, 24, b -> b.getLong());
+
+        StepVerifier.create(Flux.from(publisher), 0)
+                .thenRequest(4)
+                .expectNext(0L, 1L, 2L, 3L)
+                .then(() -> Assertions.assertThat(publisher.mappedSegments()).isEqualTo(1))
+                .thenRequest(6)
+                .expectNext(4L, 5L, 6L, 7L, 8L, 9L)
+                .verifyComplete();
+
+        Assertions.assertThat(publisher.mappedSegments()).isZero();
+    }
+
+    @Test
+    public void lengthPrefixedRecordsBiggerThanASegment() throws IOException {
+        String[] words = {"a", "bb", "a much longer record than the segment", "ccc"};
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        for (String word : words) {
+            byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+            buffer.putInt(bytes.length).put(bytes);
+        }
+        Path file = Files.createTempFile("words", ".bin");
+        file.toFile().deleteOnExit();
+        Files.write(file, Arrays.copyOf(buffer.array(), buffer.position()));
+
+        MappedFilePublisher<String> publisher = MappedFilePublisher.lengthPrefixed(file, 8,
+                b -> StandardCharsets.UTF_8.decode(b).toString());
+
+        StepVerifier.create(Flux.from(publisher))
+                .expectNext(words)
+                .verifyComplete();
+    }
+
+    @Test
+    public void segmentsAreSharedAndUnmappedOnceEverySubscriberPassed() throws IOException {
+        MappedFilePublisher<Long> publisher = MappedFilePublisher.fixedLength(longs(6), 8, 16, b -> b.getLong());
+        List<Subscription> subscriptions = new ArrayList<>();
+        List<Long> seen = new ArrayList<>();
+
+        for (int i = 0; i < 2; i++) {
+            publisher.subscribe(new Subscriber<Long>() {
+                @Override
+                public void onSubscribe(Subscription s) {
+                    subscriptions.add(s);
+                }
+
+                @Override
+                public void onNext(Long record) {
+                    seen.add(record);
+                }
+
+                @Override
+                public void onError(Throwable t) {
+
+                }
+
+                @Override
+                public void onComplete() {
+
+                }
+            });
+        }
+
+        subscriptions.get(0).request(1);
+        subscriptions.get(1).request(1);
+        Assertions.assertThat(publisher.mappedSegments()).isEqualTo(1);
+
+        // the first subscriber moves to the second segment, the first one is still in use
+        subscriptions.get(0).request(2);
+        Assertions.assertThat(publisher.mappedSegments()).isEqualTo(2);
+
+        subscriptions.get(1).request(2);
+        Assertions.assertThat(publisher.mappedSegments()).isEqualTo(1);
+
+        subscriptions.get(0).cancel();
+        subscriptions.get(1).cancel();
+        Assertions.assertThat(publisher.mappedSegments()).isZero();
+        Assertions.assertThat(seen).containsExactly(0L, 0L, 1L, 2L, 1L, 2L);
+    }
+
+    @Test
+    public void cancellingOnTheLastRecordUnmapsItsSegment() throws IOException {
+        MappedFilePublisher<Long> publisher = MappedFilePublisher.fixedLength(longs(4), 8, 16, b -> b.getLong());
+        List<Long> seen = new ArrayList<>();
+        boolean[] completed = new boolean[1];
+
+        publisher.subscribe(new Subscriber<Long>() {
+            Subscription s;
+
+            @Override
+            public void onSubscribe(Subscription s) {
+                this.s = s;
+                s.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(Long record) {
+                seen.add(record);
+                if (record == 3L) {
+                    s.cancel();
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+
+            }
+
+            @Override
+            public void onComplete() {
+                completed[0] = true;
+            }
+        });
+
+        Assertions.assertThat(seen).containsExactly(0L, 1L, 2L, 3L);
+        Assertions.assertThat(completed[0]).isFalse();
+        Assertions.assertThat(publisher.mappedSegments()).isZero();
+    }
+
+    @Test
+    public void byteBufferRecordsOutliveTheirSegment() throws IOException {
+        MappedFilePublisher<ByteBuffer> publisher = MappedFilePublisher.fixedLength(longs(1_000), 8);
+
+        // kept by an asynchronous boundary and a collection, long after the mapping is gone
+        List<ByteBuffer> records = Flux.from(publisher)
+                .publishOn(Schedulers.single())
+                .collectList()
+                .block();
+
+        Assertions.assertThat(publisher.mappedSegments()).isZero();
+        Assertions.assertThat(records).hasSize(1_000);
+        for (int i = 0; i < records.size(); i++) {
+            Assertions.assertThat(records.get(i).isDirect()).isFalse();
+            Assertions.assertThat(records.get(i).getLong(0)).isEqualTo(i);
+        }
+    }
+
+    @Test
+    public void truncatedFileMustSignalError() throws IOException {
+        Path file = Files.createTempFile("truncated", ".bin");
+        file.toFile().deleteOnExit();
+        Files.write(file, new byte[12]);
+
+        StepVerifier.create(Flux.from(MappedFilePublisher.fixedLength(file, 8, b -> b.getLong())))
+                .expectNext(0L)
+                .verifyError(IOException.class);
+    }
+
+}
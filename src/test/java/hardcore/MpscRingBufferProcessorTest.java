@@ -0,0 +1,132 @@
+package hardcore;
+
+
+import org.assertj.core.api.Assertions;
+import org.testng.annotations.Test;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+
+public class MpscRingBufferProcessorTest {
+
+    @Test
+    public void manyProducersSingleConsumer() throws InterruptedException {
+        final int producers = 4;
+        final int perProducer = 10_000;
+        MpscRingBufferProcessor<Long> processor =
+                new MpscRingBufferProcessor<>(128, MpscRingBufferProcessor.OverflowPolicy.BLOCK);
+        ExecutorService pool = Executors.newFixedThreadPool(producers);
+
+        try {
+            StepVerifier.create(Flux.from(processor).publishOn(Schedulers.single()).collectList())
+                    .then(() -> {
+                        for (int p = 0; p < producers; p++) {
+                            long base = p * 1_000_000L;
+                            pool.execute(() -> {
+                                for (int i = 0; i < perProducer; i++) {
+                                    processor.offer(base + i);
+                                }
+                            });
+                        }
+                    })
+                    .then(() -> {
+                        pool.shutdown();
+                        try {
+                            Assertions.assertThat(pool.awaitTermination(5, SECONDS)).isTrue();
+                        } catch (InterruptedException e) {
+                            throw Exceptions.propagate(e);
+                        }
+                        processor.onComplete();
+                    })
+                    .assertNext(all -> {
+                        Assertions.assertThat(all).hasSize(producers * perProducer);
+                        // every producer's own order is kept
+                        for (int p = 0; p < producers; p++) {
+                            long base = p * 1_000_000L;
+                            List<Long> mine = all.stream()
+                                    .filter(l -> l >= base && l < base + perProducer)
+                                    .collect(Collectors.toList());
+                            Assertions.assertThat(mine).isSorted().hasSize(perProducer);
+                        }
+                    })
+                    .verifyComplete();
+        } finally {
+            pool.shutdownNow();
+        }
+        Assertions.assertThat(processor.droppedCount()).isZero();
+    }
+
+    @Test
+    public void dropNewestKeepsTheFirstElements() {
+        MpscRingBufferProcessor<Integer> processor =
+                new MpscRingBufferProcessor<>(4, MpscRingBufferProcessor.OverflowPolicy.DROP_NEWEST);
+
+        StepVerifier.create(processor, 0)
+                .then(() -> {
+                    for (int i = 0; i < 10; i++) {
+                        processor.onNext(i);
+                    }
+                    processor.onComplete();
+                })
+                .thenRequest(Long.MAX_VALUE)
+                .expectNext(0, 1, 2, 3)
+                .verifyComplete();
+
+        Assertions.assertThat(processor.droppedCount()).isEqualTo(6);
+    }
+
+    @Test
+    public void dropOldestKeepsTheLastElements() {
+        MpscRingBufferProcessor<Integer> processor =
+                new MpscRingBufferProcessor<>(4, MpscRingBufferProcessor.OverflowPolicy.DROP_OLDEST);
+
+        StepVerifier.create(processor, 0)
+                .then(() -> {
+                    for (int i = 0; i < 10; i++) {
+                        processor.onNext(i);
+                    }
+                    processor.onComplete();
+                })
+                .thenRequest(Long.MAX_VALUE)
+                .expectNext(6, 7, 8, 9)
+                .verifyComplete();
+
+        Assertions.assertThat(processor.droppedCount()).isEqualTo(6);
+    }
+
+    @Test
+    public void errorPolicyTerminatesOnOverflow() {
+        MpscRingBufferProcessor<Integer> processor =
+                new MpscRingBufferProcessor<>(2, MpscRingBufferProcessor.OverflowPolicy.ERROR);
+
+        StepVerifier.create(processor, 0)
+                .then(() -> {
+                    processor.onNext(1);
+                    processor.onNext(2);
+                    Assertions.assertThat(processor.offer(3)).isFalse();
+                })
+                .expectErrorMatches(Exceptions::isOverflow)
+                .verify(Duration.ofSeconds(1));
+    }
+
+    @Test
+    public void onlyOneSubscriberIsAllowed() {
+        MpscRingBufferProcessor<Integer> processor =
+                new MpscRingBufferProcessor<>(2, MpscRingBufferProcessor.OverflowPolicy.BLOCK);
+        Flux.from(processor).subscribe();
+
+        StepVerifier.create(processor)
+                .verifyError(IllegalStateException.class);
+    }
+
+}
@@ -0,0 +1,243 @@
+package hardcore;
+
+
+import org.assertj.core.api.Assertions;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+
+public class MulticastArrayPublisherTest {
+    static Long[] generate(long num){
+        return LongStream.range(0, num)
+                .boxed()
+                .toArray(Long[]::new);
+    }
+
+    static class RecordingSubscriber implements Subscriber<Long> {
+        final List<Long> collected = new ArrayList<>();
+        Subscription s;
+        boolean completed;
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            this.s = s;
+        }
+
+        @Override
+        public void onNext(Long aLong) {
+            collected.add(aLong);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+
+    @Test
+    public void mustReportSlowestAndFastestCursor() {
+        MulticastArrayPublisher<Long> publisher = new MulticastArrayPublisher<>(generate(100));
+        RecordingSubscriber slow = new RecordingSubscriber();
+        RecordingSubscriber fast = new RecordingSubscriber();
+        publisher.subscribe(slow);
+        publisher.subscribe(fast);
+
+        slow.s.request(3);
+        fast.s.request(40);
+
+        Assertions.assertThat(publisher.subscriberCount()).isEqualTo(2);
+        Assertions.assertThat(publisher.slowest()).isEqualTo(3);
+        Assertions.assertThat(publisher.fastest()).isEqualTo(40);
+
+        fast.s.request(Long.MAX_VALUE);
+
+        // completed subscribers leave the accounting
+        Assertions.assertThat(fast.completed).isTrue();
+        Assertions.assertThat(publisher.subscriberCount()).isEqualTo(1);
+        Assertions.assertThat(publisher.fastest()).isEqualTo(3);
+
+        slow.s.cancel();
+        Assertions.assertThat(publisher.slowest()).isEqualTo(-1);
+    }
+
+    @Test
+    public void lockstepMustWaitForTheSlowestSubscriber() {
+        MulticastArrayPublisher<Long> publisher = MulticastArrayPublisher.lockstep(generate(10));
+        RecordingSubscriber eager = new RecordingSubscriber();
+        RecordingSubscriber lazy = new RecordingSubscriber();
+        publisher.subscribe(eager);
+        publisher.subscribe(lazy);
+
+        eager.s.request(Long.MAX_VALUE);
+        // one element ahead of the slowest at most
+        Assertions.assertThat(eager.collected).containsExactly(0L);
+
+        lazy.s.request(3);
+        Assertions.assertThat(lazy.collected).containsExactly(0L, 1L, 2L);
+        Assertions.assertThat(eager.collected).containsExactly(0L, 1L, 2L, 3L);
+
+        // once the slowest one is gone the other runs free
+        lazy.s.cancel();
+        Assertions.assertThat(eager.collected).containsExactly(generate(10));
+        Assertions.assertThat(eager.completed).isTrue();
+    }
+
+    @Test
+    public void lateLockstepSubscriberJoinsAtTheSlowestCursor() {
+        MulticastArrayPublisher<Long> publisher = MulticastArrayPublisher.lockstep(generate(10));
+        RecordingSubscriber first = new RecordingSubscriber();
+        RecordingSubscriber second = new RecordingSubscriber();
+        publisher.subscribe(first);
+        publisher.subscribe(second);
+        first.s.request(5);
+        second.s.request(4);
+
+        RecordingSubscriber late = new RecordingSubscriber();
+        publisher.subscribe(late);
+        // starting at 0 would stop the others until it caught up
+        Assertions.assertThat(publisher.slowest()).isEqualTo(4);
+
+        late.s.request(Long.MAX_VALUE);
+        second.s.request(Long.MAX_VALUE);
+        first.s.request(Long.MAX_VALUE);
+        Assertions.assertThat(late.collected).containsExactly(4L, 5L, 6L, 7L, 8L, 9L);
+        Assertions.assertThat(first.collected).containsExactly(generate(10));
+        Assertions.assertThat(second.collected).containsExactly(generate(10));
+        Assertions.assertThat(late.completed && first.completed && second.completed).isTrue();
+    }
+
+    @Test
+    public void wideLockstepFanOutMustNotRecurse() {
+        int subscribers = 2_000;
+        MulticastArrayPublisher<Long> publisher = MulticastArrayPublisher.lockstep(generate(1_000));
+        List<RecordingSubscriber> all = new ArrayList<>();
+        for (int i = 0; i < subscribers; i++) {
+            RecordingSubscriber subscriber = new RecordingSubscriber();
+            publisher.subscribe(subscriber);
+            all.add(subscriber);
+        }
+
+        // the last request releases every element to every subscriber on this thread
+        for (RecordingSubscriber subscriber : all) {
+            subscriber.s.request(Long.MAX_VALUE);
+        }
+
+        for (RecordingSubscriber subscriber : all) {
+            Assertions.assertThat(subscriber.completed).isTrue();
+            Assertions.assertThat(subscriber.collected).hasSize(1_000);
+        }
+    }
+
+    @Test
+    public void concurrentRequestsAndCancellationsKeepTheLead() throws InterruptedException {
+        int subscribers = 50;
+        int maxLead = 4;
+        Long[] array = generate(2_000);
+        MulticastArrayPublisher<Long> publisher = new MulticastArrayPublisher<>(array, maxLead);
+        List<String> violations = Collections.synchronizedList(new ArrayList<>());
+        List<ConcurrentSubscriber> all = new ArrayList<>();
+        for (int i = 0; i < subscribers; i++) {
+            ConcurrentSubscriber subscriber = new ConcurrentSubscriber(publisher, maxLead, violations);
+            publisher.subscribe(subscriber);
+            all.add(subscriber);
+        }
+
+        // one thread per subscriber: a subscriber that never requests would hold the others back
+        ExecutorService pool = Executors.newFixedThreadPool(subscribers);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int i = 0; i < subscribers; i++) {
+            ConcurrentSubscriber subscriber = all.get(i);
+            boolean cancelling = i % 5 == 0;
+            pool.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (subscriber.done.getCount() != 0) {
+                    if (cancelling && subscriber.received > 100) {
+                        subscriber.s.cancel();
+                        subscriber.done.countDown();
+                        return;
+                    }
+                    subscriber.s.request(1 + random.nextInt(8));
+                    Thread.yield();
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        Assertions.assertThat(pool.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        Assertions.assertThat(violations).isEmpty();
+        for (int i = 0; i < subscribers; i++) {
+            if (i % 5 != 0) {
+                Assertions.assertThat(all.get(i).completed).isTrue();
+                Assertions.assertThat(all.get(i).collected).containsExactly(array);
+            }
+        }
+        Assertions.assertThat(publisher.subscriberCount()).isZero();
+    }
+
+    static class ConcurrentSubscriber implements Subscriber<Long> {
+        final MulticastArrayPublisher<Long> publisher;
+        final int maxLead;
+        final List<String> violations;
+        final List<Long> collected = new ArrayList<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile Subscription s;
+        volatile int received;
+        volatile boolean completed;
+
+        ConcurrentSubscriber(MulticastArrayPublisher<Long> publisher, int maxLead, List<String> violations) {
+            this.publisher = publisher;
+            this.maxLead = maxLead;
+            this.violations = violations;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            this.s = s;
+        }
+
+        @Override
+        public void onNext(Long value) {
+            // every active cursor is at least at the limit this element was emitted under
+            int slowest = publisher.slowest();
+            if (value >= slowest + maxLead) {
+                violations.add(value + " emitted with the slowest cursor at " + slowest);
+            }
+            collected.add(value);
+            received++;
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            violations.add(t.toString());
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+            done.countDown();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package hardcore;
+
+
+import org.assertj.core.api.Assertions;
+import org.testng.annotations.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+
+public class ParallelArrayPublisherTest {
+    static Long[] generate(long num){
+        return LongStream.range(0, num)
+                .boxed()
+                .toArray(Long[]::new);
+    }
+
+    @Test
+    public void railsMustCoverContiguousRanges() {
+        List<List<Long>> rails = new ArrayPublisherThreadSafe<>(generate(10)).parallel(3)
+                .groups()
+                .flatMap(Flux::collectList)
+                .collectSortedList((a, b) -> Long.compare(a.get(0), b.get(0)))
+                .block();
+
+        Assertions.assertThat(rails).containsExactly(
+                Arrays.asList(0L, 1L, 2L),
+                Arrays.asList(3L, 4L, 5L),
+                Arrays.asList(6L, 7L, 8L, 9L));
+    }
+
+    @Test
+    public void railsMustRunOnTheirOwnWorkers() {
+        Long[] array = generate(10_000);
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        Scheduler scheduler = Schedulers.newParallel("rail", 4);
+
+        try {
+            List<Long> collected = new ArrayPublisherThreadSafe<>(array).parallel(4)
+                    .runOn(scheduler)
+                    .doOnNext(l -> threads.add(Thread.currentThread().getName()))
+                    .sequential()
+                    .collectList()
+                    .block();
+
+            Assertions.assertThat(collected).containsExactlyInAnyOrder(array);
+            Assertions.assertThat(threads).hasSize(4);
+        } finally {
+            scheduler.dispose();
+        }
+    }
+
+    @Test
+    public void rejoinInOrderMustRestoreSourceOrder() {
+        Long[] array = generate(5_000);
+
+        Flux<Long> ordered = ParallelArrayPublisher.rejoinInOrder(
+                new ArrayPublisherThreadSafe<>(array).parallel(4)
+                        .runOn(Schedulers.parallel())
+                        .map(l -> l * 2));
+
+        StepVerifier.create(ordered.collectList())
+                .assertNext(list -> Assertions.assertThat(list).containsExactlyElementsOf(
+                        LongStream.range(0, 5_000).map(l -> l * 2).boxed().collect(Collectors.toList())))
+                .verifyComplete();
+    }
+
+    @Test
+    public void moreRailsThanElementsMustStillComplete() {
+        StepVerifier.create(new ArrayPublisherThreadSafe<>(generate(2)).parallel(4).sequential())
+                .expectNextCount(2)
+                .verifyComplete();
+    }
+
+}
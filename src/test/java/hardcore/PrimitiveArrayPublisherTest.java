@@ -0,0 +1,205 @@
+package hardcore;
+
+
+import org.assertj.core.api.Assertions;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.testng.annotations.Test;
+import reactor.core.Fuseable;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+
+public class PrimitiveArrayPublisherTest {
+
+    @Test
+    public void longSubscriberMustNeverSeeBoxedValues() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        long[] array = LongStream.range(0, 5).toArray();
+        long[] collected = new long[array.length];
+        int[] count = new int[1];
+        Subscription[] subscription = new Subscription[1];
+
+        new LongArrayPublisher(array).subscribe(new LongSubscriber() {
+            @Override
+            public void onSubscribe(Subscription s) {
+                subscription[0] = s;
+            }
+
+            @Override
+            public void onNextLong(long value) {
+                collected[count[0]++] = value;
+            }
+
+            @Override
+            public void onNext(Long value) {
+                throw new AssertionError("boxed onNext called with " + value);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+
+            }
+
+            @Override
+            public void onComplete() {
+                latch.countDown();
+            }
+        });
+
+        subscription[0].request(2);
+        Assertions.assertThat(count[0]).isEqualTo(2);
+
+        subscription[0].request(3);
+        Assertions.assertThat(latch.await(1, SECONDS)).isTrue();
+        Assertions.assertThat(collected).containsExactly(array);
+    }
+
+    @Test
+    public void plainSubscriberMustGetBoxedFallback() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        ArrayList<Integer> collected = new ArrayList<>();
+
+        new IntArrayPublisher(IntStream.range(0, 100).toArray()).subscribe(new Subscriber<Integer>() {
+            Subscription s;
+
+            @Override
+            public void onSubscribe(Subscription s) {
+                this.s = s;
+                s.request(1);
+            }
+
+            @Override
+            public void onNext(Integer value) {
+                collected.add(value);
+                s.request(1);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+
+            }
+
+            @Override
+            public void onComplete() {
+                latch.countDown();
+            }
+        });
+
+        Assertions.assertThat(latch.await(1, SECONDS)).isTrue();
+        Assertions.assertThat(collected).hasSize(100).startsWith(0, 1, 2).endsWith(99);
+    }
+
+    @Test
+    public void doubleSubscriberWithUnboundedDemand() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        double[] sum = new double[1];
+
+        new DoubleArrayPublisher(new double[]{0.5, 1.5, 2.0}).subscribe(new DoubleSubscriber() {
+            @Override
+            public void onSubscribe(Subscription s) {
+                s.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNextDouble(double value) {
+                sum[0] += value;
+            }
+
+            @Override
+            public void onError(Throwable t) {
+
+            }
+
+            @Override
+            public void onComplete() {
+                latch.countDown();
+            }
+        });
+
+        Assertions.assertThat(latch.await(1, SECONDS)).isTrue();
+        Assertions.assertThat(sum[0]).isEqualTo(4.0);
+    }
+
+    @Test
+    public void conditionalSubscriberMustOnlyPayForAcceptedValues() {
+        ArrayList<Long> tried = new ArrayList<>();
+        ArrayList<Long> accepted = new ArrayList<>();
+        Subscription[] subscription = new Subscription[1];
+        boolean[] completed = new boolean[1];
+
+        new LongArrayPublisher(LongStream.range(0, 10).toArray()).subscribe(new Fuseable.ConditionalSubscriber<Long>() {
+            @Override
+            public void onSubscribe(Subscription s) {
+                subscription[0] = s;
+            }
+
+            @Override
+            public boolean tryOnNext(Long value) {
+                tried.add(value);
+                if (value % 3 == 0) {
+                    accepted.add(value);
+                    return true;
+                }
+                return false;
+            }
+
+            @Override
+            public void onNext(Long value) {
+                throw new AssertionError("onNext called with " + value);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+
+            }
+
+            @Override
+            public void onComplete() {
+                completed[0] = true;
+            }
+        });
+
+        // two accepted values, the rejected ones in between are free
+        subscription[0].request(2);
+        Assertions.assertThat(accepted).containsExactly(0L, 3L);
+        Assertions.assertThat(tried).containsExactly(0L, 1L, 2L, 3L);
+
+        subscription[0].request(2);
+        Assertions.assertThat(accepted).containsExactly(0L, 3L, 6L, 9L);
+        Assertions.assertThat(completed[0]).isTrue();
+    }
+
+    @Test
+    public void emptyArrayCompletesWithoutDemand() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+
+        new LongArrayPublisher(new long[0]).subscribe(new LongSubscriber() {
+            @Override
+            public void onSubscribe(Subscription s) {
+            }
+
+            @Override
+            public void onNextLong(long value) {
+            }
+
+            @Override
+            public void onError(Throwable t) {
+
+            }
+
+            @Override
+            public void onComplete() {
+                latch.countDown();
+            }
+        });
+
+        Assertions.assertThat(latch.await(1, SECONDS)).isTrue();
+    }
+
+}
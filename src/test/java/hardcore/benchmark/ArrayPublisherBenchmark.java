@@ -0,0 +1,129 @@
+package hardcore.benchmark;
+
+import hardcore.ArrayPublisherNotThreadSafe;
+import hardcore.ArrayPublisherThreadSafe;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/*
+    one subscriber, one thread:
+    - unbounded: request(Long.MAX_VALUE) in onSubscribe
+    - pingPong: request(1) in onSubscribe then request(1) from every onNext, the reentrant path
+
+    run with -prof gc (the jmh profile does) to get gc.alloc.rate.norm, the bytes allocated per
+    subscription: it should stay flat when size grows, anything per element shows up there
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ArrayPublisherBenchmark {
+
+    @Param({"1", "1000", "1000000", "10000000"})
+    int size;
+
+    @Param({"notThreadSafe", "threadSafe", "fluxFromArray"})
+    String impl;
+
+    Long[] array;
+
+    @Setup
+    public void setup() {
+        array = LongStream.range(0, size).boxed().toArray(Long[]::new);
+    }
+
+    @SuppressWarnings("unchecked")
+    Publisher<Long> publisher() {
+        switch (impl) {
+            case "notThreadSafe":
+                return new ArrayPublisherNotThreadSafe<>(array);
+            case "threadSafe":
+                return new ArrayPublisherThreadSafe<>(array);
+            default:
+                return Flux.fromArray(array);
+        }
+    }
+
+    @Benchmark
+    public void unbounded(Blackhole bh) {
+        publisher().subscribe(new Subscriber<Long>() {
+            @Override
+            public void onSubscribe(Subscription s) {
+                s.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(Long aLong) {
+                bh.consume(aLong);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                bh.consume(t);
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+    }
+
+    @Benchmark
+    public void pingPong(Blackhole bh) {
+        publisher().subscribe(new Subscriber<Long>() {
+            Subscription s;
+
+            @Override
+            public void onSubscribe(Subscription s) {
+                this.s = s;
+                s.request(1);
+            }
+
+            @Override
+            public void onNext(Long aLong) {
+                bh.consume(aLong);
+                s.request(1);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                bh.consume(t);
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ArrayPublisherBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build())
+                .run();
+    }
+}
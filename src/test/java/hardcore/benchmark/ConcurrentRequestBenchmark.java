@@ -0,0 +1,139 @@
+package hardcore.benchmark;
+
+import hardcore.ArrayPublisherThreadSafe;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/*
+    "threads" threads hammering request(1) on the same subscription until every element arrived,
+    the multithreadingTest of ArrayPublisherThreadSafeTest as a benchmark:
+    - lockFree: ArrayPublisherThreadSafe, the wip drain loop
+    - synchronized: getThreadSafeSubscription2, request() holding the monitor across onNext
+    - fluxFromArray: reactor's own
+
+    one op is a whole array, so compare ops/s across impl for the same size and threads
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ConcurrentRequestBenchmark {
+
+    @Param({"1", "1000", "1000000", "10000000"})
+    int size;
+
+    @Param({"2", "4", "8"})
+    int threads;
+
+    @Param({"lockFree", "synchronized", "fluxFromArray"})
+    String impl;
+
+    Long[] array;
+    ExecutorService pool;
+
+    @Setup
+    public void setup() {
+        array = LongStream.range(0, size).boxed().toArray(Long[]::new);
+        pool = Executors.newFixedThreadPool(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    Publisher<Long> publisher() {
+        switch (impl) {
+            case "lockFree":
+                return new ArrayPublisherThreadSafe<>(array);
+            case "synchronized":
+                ArrayPublisherThreadSafe<Long> monitor = new ArrayPublisherThreadSafe<>(array);
+                return s -> s.onSubscribe(monitor.getThreadSafeSubscription2(s));
+            default:
+                return Flux.fromArray(array);
+        }
+    }
+
+    @Benchmark
+    public void hammerRequest(Blackhole bh) throws InterruptedException {
+        final int n = size;
+        final int t = threads;
+        // counted on onNext: getThreadSafeSubscription2 never completes on request(1)
+        CountDownLatch received = new CountDownLatch(1);
+        Subscription[] subscription = new Subscription[1];
+
+        publisher().subscribe(new Subscriber<Long>() {
+            int count;
+
+            @Override
+            public void onSubscribe(Subscription s) {
+                subscription[0] = s;
+            }
+
+            @Override
+            public void onNext(Long aLong) {
+                bh.consume(aLong);
+                if (++count == n) {
+                    received.countDown();
+                }
+            }
+
+            @Override
+            public void onError(Throwable e) {
+                bh.consume(e);
+                received.countDown();
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+
+        for (int i = 0; i < t; i++) {
+            final int share = n / t + (i < n % t ? 1 : 0);
+            pool.execute(() -> {
+                Subscription s = subscription[0];
+                for (int k = 0; k < share; k++) {
+                    s.request(1);
+                }
+            });
+        }
+        received.await();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ConcurrentRequestBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,79 @@
+package hardcore.benchmark;
+
+import hardcore.ArrayPublisherThreadSafe;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/*
+    map + filter over the same array:
+    - Flux.fromArray, reactor's own fuseable source
+    - ArrayPublisherThreadSafe wrapped with Flux.from, SYNC fused with map/filter
+    - the same publisher behind hide(), which forbids fusion: full request/onNext protocol per element
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FusionBenchmark {
+
+    @Param({"1000", "1000000"})
+    int size;
+
+    Long[] array;
+
+    @Setup
+    public void setup() {
+        array = LongStream.range(0, size).boxed().toArray(Long[]::new);
+    }
+
+    @Benchmark
+    public void fluxFromArray(Blackhole bh) {
+        Flux.fromArray(array)
+                .map(l -> l + 1)
+                .filter(l -> (l & 1) == 0)
+                .subscribe(bh::consume);
+    }
+
+    @Benchmark
+    public void arrayPublisherFused(Blackhole bh) {
+        Flux.from(new ArrayPublisherThreadSafe<>(array))
+                .map(l -> l + 1)
+                .filter(l -> (l & 1) == 0)
+                .subscribe(bh::consume);
+    }
+
+    @Benchmark
+    public void arrayPublisherNotFused(Blackhole bh) {
+        Flux.from(new ArrayPublisherThreadSafe<>(array))
+                .hide()
+                .map(l -> l + 1)
+                .filter(l -> (l & 1) == 0)
+                .subscribe(bh::consume);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FusionBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
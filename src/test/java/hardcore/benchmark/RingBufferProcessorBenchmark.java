@@ -0,0 +1,102 @@
+package hardcore.benchmark;
+
+import hardcore.MpscRingBufferProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.EmitterProcessor;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+    4 producer threads pushing into one consumer that requests Long.MAX_VALUE:
+    - MpscRingBufferProcessor, lock free offer
+    - Sinks.many().multicast(), concurrent emitNext retried on FAIL_NON_SERIALIZED
+    - EmitterProcessor, onNext serialized with a monitor: its own serialized FluxSink / serialize()
+      queue without bound when the producers outrun the consumer, the heap just grows
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class RingBufferProcessorBenchmark {
+
+    static final Long VALUE = 1L;
+
+    MpscRingBufferProcessor<Long> ringBuffer;
+    Sinks.Many<Long> sink;
+    // deprecated in Reactor 3.4, kept as the baseline the ring buffer replaces
+    @SuppressWarnings("deprecation")
+    EmitterProcessor<Long> emitterProcessor;
+    Disposable[] consumers;
+
+    @Setup(Level.Iteration)
+    @SuppressWarnings("deprecation")
+    public void setup(Blackhole bh) {
+        ringBuffer = new MpscRingBufferProcessor<>(1024, MpscRingBufferProcessor.OverflowPolicy.BLOCK);
+        ringBuffer.subscribe(new BaseSubscriber<Long>() {
+            @Override
+            protected void hookOnNext(Long value) {
+                bh.consume(value);
+            }
+        });
+
+        sink = Sinks.many().multicast().onBackpressureBuffer(1024);
+        emitterProcessor = EmitterProcessor.create(1024);
+        consumers = new Disposable[]{
+                sink.asFlux().subscribe(bh::consume),
+                emitterProcessor.subscribe(bh::consume)
+        };
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        for (Disposable d : consumers) {
+            d.dispose();
+        }
+    }
+
+    @Benchmark
+    public boolean mpscRingBufferProcessor() {
+        return ringBuffer.offer(VALUE);
+    }
+
+    @Benchmark
+    public void sinksManyMulticast() {
+        sink.emitNext(VALUE, (signal, result) -> result == Sinks.EmitResult.FAIL_NON_SERIALIZED);
+    }
+
+    @Benchmark
+    public void emitterProcessor() {
+        synchronized (emitterProcessor) {
+            emitterProcessor.onNext(VALUE);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RingBufferProcessorBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
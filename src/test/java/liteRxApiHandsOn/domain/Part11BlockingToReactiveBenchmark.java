@@ -0,0 +1,116 @@
+package liteRxApiHandsOn.domain;
+
+import liteRxApiHandsOn.domain.repository.BlockingUserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+    "concurrency" blocking findAll() calls (4 users, 1 ms per user) bridged at once by Part11.blockingRepositoryToFlux:
+    - boundedElastic: at most 10 x cores threads, the other calls wait in its queue
+    - virtual: one virtual thread per call, needs JDK 21+ (the setup fails before)
+
+    one op is the whole fan-out: ops/s x concurrency is the call throughput. SampleTime reports its percentiles,
+    the p99 of a single call (from subscription to completion) is printed after each iteration
+
+    mvn -P jmh verify -Djmh.includes=Part11BlockingToReactiveBenchmark
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class Part11BlockingToReactiveBenchmark {
+
+	@Param({"1000", "10000"})
+	int concurrency;
+
+	@Param({"boundedElastic", "virtual"})
+	String scheduler;
+
+	Scheduler blockingScheduler;
+
+	Part11BlockingToReactive part11;
+
+	BlockingUserRepository repository;
+
+	long[] callNanos;
+
+	AtomicInteger calls;
+
+	long[] p99Nanos = new long[0];
+
+	@Setup
+	public void setup() {
+		if ("virtual".equals(scheduler)) {
+			blockingScheduler = VirtualThreadScheduler.create("bench-virtual");
+		} else {
+			blockingScheduler = Schedulers.newBoundedElastic(
+					Schedulers.DEFAULT_BOUNDED_ELASTIC_SIZE, Integer.MAX_VALUE, "bench-elastic");
+		}
+		part11 = new Part11BlockingToReactive(blockingScheduler);
+		repository = new BlockingUserRepository(1);
+		callNanos = new long[concurrency];
+		calls = new AtomicInteger();
+	}
+
+	@TearDown
+	public void tearDown() {
+		blockingScheduler.dispose();
+	}
+
+	@TearDown(Level.Iteration)
+	public void reportCallP99() {
+		if (p99Nanos.length > 0) {
+			Arrays.sort(p99Nanos);
+			System.out.printf("per call p99 (median over %d fan-outs): %.1f ms%n",
+					p99Nanos.length, p99Nanos[p99Nanos.length / 2] / 1e6);
+			p99Nanos = new long[0];
+		}
+	}
+
+	@Benchmark
+	public void fanOut() {
+		calls.set(0);
+		Flux.range(0, concurrency)
+				.flatMap(i -> {
+					long start = System.nanoTime();
+					return part11.blockingRepositoryToFlux(repository)
+							.doOnComplete(() -> callNanos[calls.getAndIncrement()] = System.nanoTime() - start);
+				}, concurrency)
+				.blockLast();
+
+		long[] sorted = callNanos.clone();
+		Arrays.sort(sorted);
+		p99Nanos = Arrays.copyOf(p99Nanos, p99Nanos.length + 1);
+		p99Nanos[p99Nanos.length - 1] = sorted[(int) (sorted.length * 0.99) - 1];
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(Part11BlockingToReactiveBenchmark.class.getSimpleName())
+				.build())
+				.run();
+	}
+}
@@ -0,0 +1,93 @@
+package liteRxApiHandsOn.domain;
+
+import liteRxApiHandsOn.domain.repository.BlockingUserRepository;
+import org.junit.AfterClass;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class Part11BlockingToReactiveTest {
+
+	private static final Scheduler SCHEDULER = Schedulers.newBoundedElastic(8, 1000, "part11-test");
+
+	private final Part11BlockingToReactive part11 = new Part11BlockingToReactive(SCHEDULER);
+
+	@AfterClass
+	public static void disposeScheduler() {
+		SCHEDULER.dispose();
+	}
+
+	@Test
+	public void orderedAcknowledgementsArePersistedPrefixes() {
+		BlockingUserRepository repository = new BlockingUserRepository(0);
+
+		StepVerifier.create(part11.fluxToBlockingRepository(users(10), repository, 4, 3, true))
+				.expectNext(3L, 6L, 9L, 10L)
+				.verifyComplete();
+		assertThat(repository.metrics().snapshot().get("saveAll").getCalls()).isEqualTo(3);
+		assertThat(repository.metrics().snapshot().get("save").getCalls()).isEqualTo(1);
+		assertThat(repository.findById("user9")).isNotNull();
+	}
+
+	@Test
+	public void saversRunInParallelUpToTheConcurrency() {
+		AtomicInteger inFlight = new AtomicInteger();
+		AtomicInteger maxInFlight = new AtomicInteger();
+		AtomicInteger requested = new AtomicInteger();
+		BlockingUserRepository repository = new BlockingUserRepository(0) {
+			@Override
+			public void save(User user) {
+				maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+				try {
+					Thread.sleep(20);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				inFlight.decrementAndGet();
+				super.save(user);
+			}
+		};
+
+		StepVerifier.create(part11.fluxToBlockingRepository(users(12).doOnRequest(n -> requested.addAndGet((int) Math.min(n, 1000))),
+				repository, 3, 1, false))
+				.expectNextCount(11)
+				.expectNext(12L)
+				.verifyComplete();
+		assertThat(maxInFlight.get()).isBetween(2, 3);
+		// never asked for more than the in-flight window at once
+		assertThat(requested.get()).isLessThanOrEqualTo(12 + 3);
+	}
+
+	@Test
+	public void pagesArePulledOnDemandOnTheOffloadScheduler() {
+		List<String> fetchThreads = new CopyOnWriteArrayList<>();
+		BlockingUserRepository repository = new BlockingUserRepository(0) {
+			@Override
+			public List<User> findAll(String afterUsername, int limit) {
+				fetchThreads.add(Thread.currentThread().getName());
+				return super.findAll(afterUsername, limit);
+			}
+		};
+
+		StepVerifier.create(part11.blockingRepositoryToFlux(repository, 1), 1)
+				.expectNext(User.JESSE)
+				// the page being drained, one buffered, one being fetched
+				.then(() -> assertThat(fetchThreads.size()).isLessThanOrEqualTo(3))
+				.thenRequest(Long.MAX_VALUE)
+				.expectNext(User.SAUL, User.SKYLER, User.WALTER)
+				.verifyComplete();
+		assertThat(fetchThreads).hasSize(5).allMatch(name -> name.startsWith("part11-test"));
+	}
+
+	private static Flux<User> users(int count) {
+		return Flux.range(0, count).map(i -> new User("user" + i, "First", "Last"));
+	}
+}
@@ -0,0 +1,134 @@
+package liteRxApiHandsOn.domain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/*
+    "users" users written then read back, one op is the whole batch (ms per million users):
+    - codec: UserCodec into / out of one reusable ByteBuffer, the view only compares the usernames
+    - serialization: one ObjectOutputStream, reset after each user so that every record stands on its own
+
+    the gc profiler of the jmh profile gives gc.alloc.rate.norm: about 0 B/op for codecEncode.
+    The size of the encoded batch is printed by the setup
+
+    mvn -P jmh verify -Djmh.includes=UserCodecBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class UserCodecBenchmark {
+
+	@Param({"1000000"})
+	int users;
+
+	User[] batch;
+
+	ByteBuffer encoded;
+
+	// what the decode benchmarks read
+	ByteBuffer records;
+
+	byte[] serialized;
+
+	@Setup
+	public void setup() throws IOException {
+		batch = new User[users];
+		for (int i = 0; i < users; i++) {
+			batch[i] = new User("user" + i, "First" + i % 1000, "Last" + i % 5000);
+		}
+		encoded = ByteBuffer.allocateDirect(users * 64);
+		records = codecEncode().duplicate();
+		((Buffer) records).flip();
+		encoded = ByteBuffer.allocateDirect(users * 64);
+		serialized = serialize();
+		System.out.printf("%n%d users: %d bytes encoded, %d bytes serialized%n", users, records.remaining(), serialized.length);
+	}
+
+	@Benchmark
+	public ByteBuffer codecEncode() {
+		ByteBuffer buffer = encoded;
+		((Buffer) buffer).clear();
+		for (User user : batch) {
+			UserCodec.encode(user, buffer);
+		}
+		return buffer;
+	}
+
+	@Benchmark
+	public void codecDecode(Blackhole blackhole) {
+		ByteBuffer buffer = records.duplicate();
+		while (buffer.hasRemaining()) {
+			blackhole.consume(UserCodec.decode(buffer));
+		}
+	}
+
+	@Benchmark
+	public int codecViewScan() {
+		ByteBuffer buffer = records.duplicate();
+		UserCodec.View view = new UserCodec.View();
+		int matches = 0;
+		while (buffer.hasRemaining()) {
+			if (view.wrap(buffer).usernameEquals("user42")) {
+				matches++;
+			}
+		}
+		return matches;
+	}
+
+	@Benchmark
+	public byte[] serializationEncode() throws IOException {
+		return serialize();
+	}
+
+	@Benchmark
+	public void serializationDecode(Blackhole blackhole) throws IOException, ClassNotFoundException {
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+			for (int i = 0; i < users; i++) {
+				blackhole.consume(in.readObject());
+			}
+		}
+	}
+
+	private byte[] serialize() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(users * 128);
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			for (User user : batch) {
+				out.writeObject(user);
+				out.reset();
+			}
+		}
+		return bytes.toByteArray();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(UserCodecBenchmark.class.getSimpleName())
+				.build())
+				.run();
+	}
+}
@@ -0,0 +1,87 @@
+package liteRxApiHandsOn.domain;
+
+import org.junit.Test;
+
+import java.nio.Buffer;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class UserCodecTest {
+
+	@Test
+	public void consecutiveRecordsRoundTrip() {
+		ByteBuffer buffer = ByteBuffer.allocate(256);
+		UserCodec.encode(User.SKYLER, buffer);
+		UserCodec.encode(User.WALTER, buffer);
+		assertThat(buffer.position()).isEqualTo(UserCodec.encodedLength(User.SKYLER) + UserCodec.encodedLength(User.WALTER));
+
+		((Buffer) buffer).flip();
+		assertThat(UserCodec.decode(buffer)).isEqualTo(User.SKYLER);
+		assertThat(UserCodec.decode(buffer)).isEqualTo(User.WALTER);
+		assertThat(buffer.hasRemaining()).isFalse();
+	}
+
+	@Test
+	public void nonAsciiFieldsAreUtf8LikeStringGetBytes() {
+		User user = new User("jos\u00e9", "\u6f22\u5b57", "\ud83d\ude00 \ud800");
+		ByteBuffer buffer = ByteBuffer.allocateDirect(64);
+		UserCodec.encode(user, buffer);
+
+		((Buffer) buffer).flip();
+		ByteBuffer username = buffer.duplicate();
+		((Buffer) username).position(2).limit(2 + (username.getShort(0) & 0xFFFF));
+		assertThat(StandardCharsets.UTF_8.decode(username).toString()).isEqualTo("jos\u00e9");
+		assertThat(UserCodec.decode(buffer)).isEqualTo(new User("jos\u00e9", "\u6f22\u5b57", "\ud83d\ude00 ?"));
+	}
+
+	@Test
+	public void aBufferTooSmallIsLeftUntouched() {
+		ByteBuffer buffer = ByteBuffer.allocate(UserCodec.encodedLength(User.JESSE) - 1);
+
+		assertThatThrownBy(() -> UserCodec.encode(User.JESSE, buffer)).isInstanceOf(BufferOverflowException.class);
+		assertThat(buffer.position()).isZero();
+	}
+
+	@Test
+	public void viewDecodesOnlyWhatIsRead() {
+		ByteBuffer buffer = ByteBuffer.allocate(256);
+		UserCodec.encode(User.JESSE, buffer);
+		UserCodec.encode(User.SAUL, buffer);
+		((Buffer) buffer).flip();
+
+		UserCodec.View view = UserCodec.view(buffer);
+		assertThat(view.usernameEquals("jpinkman")).isTrue();
+		assertThat(view.usernameEquals("jpinkmam")).isFalse();
+		assertThat(view.lastname()).isEqualTo("Pinkman");
+
+		view.wrap(buffer);
+		assertThat(view.toUser()).isEqualTo(User.SAUL);
+		assertThat(buffer.hasRemaining()).isFalse();
+	}
+
+	@Test
+	public void anOversizedCandidateIsNotEqual() {
+		ByteBuffer buffer = ByteBuffer.allocate(256);
+		UserCodec.encode(User.JESSE, buffer);
+		((Buffer) buffer).flip();
+		char[] huge = new char[70_000];
+		Arrays.fill(huge, 'j');
+
+		assertThat(UserCodec.view(buffer).usernameEquals(new String(huge))).isFalse();
+	}
+
+	@Test
+	public void aTruncatedRecordIsRejectedByTheView() {
+		ByteBuffer buffer = ByteBuffer.allocate(256);
+		UserCodec.encode(User.JESSE, buffer);
+		((Buffer) buffer).flip();
+		((Buffer) buffer).limit(buffer.limit() - 1);
+
+		assertThatThrownBy(() -> UserCodec.view(buffer)).isInstanceOf(IllegalArgumentException.class);
+	}
+}
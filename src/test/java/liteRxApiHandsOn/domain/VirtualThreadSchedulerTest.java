@@ -0,0 +1,40 @@
+package liteRxApiHandsOn.domain;
+
+import liteRxApiHandsOn.domain.repository.BlockingUserRepository;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.test.StepVerifier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class VirtualThreadSchedulerTest {
+
+	@Test
+	public void bridgeWorksWhateverTheJdk() {
+		Part11BlockingToReactive part11 = Part11BlockingToReactive.withVirtualThreads();
+
+		StepVerifier.create(part11.blockingRepositoryToFlux(new BlockingUserRepository(0)))
+				.expectNext(User.SKYLER, User.JESSE, User.WALTER, User.SAUL)
+				.verifyComplete();
+	}
+
+	@Test
+	public void createRunsOnVirtualThreadsOrRefuses() {
+		if (!VirtualThreadScheduler.isSupported()) {
+			assertThatThrownBy(() -> VirtualThreadScheduler.create("test"))
+					.isInstanceOf(IllegalStateException.class);
+			return;
+		}
+		Scheduler scheduler = VirtualThreadScheduler.create("test");
+		try {
+			StepVerifier.create(Mono.fromCallable(() -> Thread.currentThread().toString())
+					.subscribeOn(scheduler))
+					.assertNext(thread -> assertThat(thread).contains("VirtualThread"))
+					.verifyComplete();
+		} finally {
+			scheduler.dispose();
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package liteRxApiHandsOn.domain.repository;
+
+import liteRxApiHandsOn.domain.User;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BatchingLoaderTest {
+
+	private final List<List<String>> queries = new ArrayList<>();
+
+	private final ReactiveUserRepository repository = new ReactiveUserRepository(0) {
+		@Override
+		public Flux<User> findAllById(Collection<String> usernames) {
+			queries.add(new ArrayList<>(usernames));
+			return super.findAllById(usernames);
+		}
+	};
+
+	@Test
+	public void loadsWithinTheWindowGoOutAsOneDedupedQuery() {
+		VirtualTimeScheduler scheduler = VirtualTimeScheduler.create();
+		BatchingLoader<User> loader = new BatchingLoader<>(repository, User::getUsername, 100, Duration.ofMillis(10), scheduler);
+
+		StepVerifier.create(Flux.just("wwhite", "jpinkman", "wwhite", "unknown").flatMapSequential(loader::load))
+				.then(() -> assertThat(queries).isEmpty())
+				.then(() -> scheduler.advanceTimeBy(Duration.ofMillis(10)))
+				.expectNext(User.WALTER, User.JESSE, User.WALTER)
+				.verifyComplete();
+		assertThat(queries).containsExactly(Arrays.asList("wwhite", "jpinkman", "unknown"));
+	}
+
+	@Test
+	public void fullBatchIsDispatchedWithoutWaiting() {
+		BatchingLoader<User> loader = new BatchingLoader<>(repository, User::getUsername, 2, Duration.ofHours(1));
+
+		StepVerifier.create(Flux.just("wwhite", "jpinkman", "swhite", "sgoodman").flatMapSequential(loader::load))
+				.expectNext(User.WALTER, User.JESSE, User.SKYLER, User.SAUL)
+				.verifyComplete();
+		assertThat(loader.batchCount()).isEqualTo(2);
+	}
+
+	@Test
+	public void bulkErrorReachesEveryLoad() {
+		BatchingLoader<User> loader = new BatchingLoader<>(new ReactiveUserRepository(0) {
+			@Override
+			public Flux<User> findAllById(Collection<String> usernames) {
+				return Flux.error(new IllegalStateException("backend down"));
+			}
+		}, User::getUsername, 2, Duration.ofHours(1));
+
+		StepVerifier.create(Flux.just("wwhite", "jpinkman").flatMap(id -> loader.load(id).onErrorReturn(User.SAUL)))
+				.expectNext(User.SAUL, User.SAUL)
+				.verifyComplete();
+	}
+}
@@ -0,0 +1,112 @@
+package liteRxApiHandsOn.domain.repository;
+
+import liteRxApiHandsOn.domain.User;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BlockingUserRepositoryTest {
+
+	@Test
+	public void saveAllIsOneCallAndAcknowledgesEachBatch() {
+		BlockingUserRepository repository = new BlockingUserRepository(0, User.SKYLER);
+
+		assertThat(repository.saveAll(Arrays.asList(User.JESSE, User.WALTER, User.SAUL), 2, Duration.ofSeconds(1)))
+				.containsExactly(new BatchAck(0, 2), new BatchAck(1, 1));
+		assertThat(repository.getCallCount()).isEqualTo(1);
+		assertThat(repository.findById("sgoodman")).isEqualTo(User.SAUL);
+	}
+
+	@Test
+	public void cursorIteratesEveryUserInUsernameOrder() {
+		BlockingUserRepository repository = new BlockingUserRepository(0);
+
+		assertThat(repository.findAll("jpinkman", 1)).containsExactly(User.SAUL);
+		assertThat(repository.findAllByCursor(null, 3)).containsExactly(User.JESSE, User.SAUL, User.SKYLER, User.WALTER);
+	}
+
+	@Test
+	public void callCountIsExactUnderConcurrency() throws InterruptedException {
+		BlockingUserRepository repository = new BlockingUserRepository(0);
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread(() -> {
+				for (int i = 0; i < 500; i++) {
+					repository.findById("wwhite");
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertThat(repository.getCallCount()).isEqualTo(2000);
+		MethodMetrics.Snapshot findById = repository.metrics().snapshot().get("findById");
+		assertThat(findById.getCalls()).isEqualTo(2000);
+		assertThat(findById.getInFlight()).isZero();
+		assertThat(findById.getP99Nanos()).isPositive();
+	}
+
+	@Test
+	public void prefetchAndLowTideShapeTheRequests() {
+		List<Long> requests = new CopyOnWriteArrayList<>();
+		BlockingUserRepository repository = new BlockingUserRepository(observed(requests, new AtomicBoolean()));
+
+		int count = 0;
+		for (User ignored : repository.findAll(8, 0.5)) {
+			count++;
+		}
+
+		assertThat(count).isEqualTo(40);
+		assertThat(requests).startsWith(8L, 4L, 4L).allMatch(n -> n <= 8);
+	}
+
+	@Test
+	public void fullLowTideRefillsTheWholeBuffer() {
+		List<Long> requests = new CopyOnWriteArrayList<>();
+		BlockingUserRepository repository = new BlockingUserRepository(observed(requests, new AtomicBoolean()));
+
+		int count = 0;
+		for (User ignored : repository.findAll(8, 1)) {
+			count++;
+		}
+
+		assertThat(count).isEqualTo(40);
+		assertThat(requests).startsWith(8L, 8L, 8L);
+	}
+
+	@Test
+	public void closingTheStreamCancelsTheQuery() {
+		AtomicBoolean cancelled = new AtomicBoolean();
+		BlockingUserRepository repository = new BlockingUserRepository(observed(new CopyOnWriteArrayList<>(), cancelled));
+
+		try (Stream<User> users = repository.stream(4, 0.75)) {
+			assertThat(users.limit(3).count()).isEqualTo(3);
+		}
+
+		assertThat(cancelled).isTrue();
+	}
+
+	// 40 users, records what findAll is asked for
+	private static ReactiveRepository<User> observed(List<Long> requests, AtomicBoolean cancelled) {
+		User[] users = new User[40];
+		for (int i = 0; i < users.length; i++) {
+			users[i] = new User("user" + i, "First", "Last");
+		}
+		return new ReactiveUserRepository(0, users) {
+			@Override
+			public Flux<User> findAll() {
+				return super.findAll().doOnRequest(requests::add).doOnCancel(() -> cancelled.set(true));
+			}
+		};
+	}
+}
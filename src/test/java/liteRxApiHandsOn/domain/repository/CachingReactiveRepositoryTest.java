@@ -0,0 +1,129 @@
+package liteRxApiHandsOn.domain.repository;
+
+import liteRxApiHandsOn.domain.User;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CachingReactiveRepositoryTest {
+
+	private final AtomicInteger backendCalls = new AtomicInteger();
+
+	private final ReactiveUserRepository backend = new ReactiveUserRepository(0) {
+		@Override
+		public Mono<User> findById(String username) {
+			return super.findById(username).doOnSubscribe(s -> backendCalls.incrementAndGet());
+		}
+	};
+
+	@Test
+	public void hitsDoNotReachTheBackend() {
+		CachingReactiveRepository<User> cache = new CachingReactiveRepository<>(backend, User::getUsername, 10);
+
+		StepVerifier.create(cache.findById("wwhite").then(cache.findById("wwhite")))
+				.expectNext(User.WALTER)
+				.verifyComplete();
+		assertThat(backendCalls).hasValue(1);
+		assertThat(cache.hitCount()).isEqualTo(1);
+		assertThat(cache.missCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void concurrentMissesShareOneLoad() {
+		CachingReactiveRepository<User> cache = new CachingReactiveRepository<>(
+				new ReactiveUserRepository(50) {
+					@Override
+					public Mono<User> findById(String username) {
+						return super.findById(username).doOnSubscribe(s -> backendCalls.incrementAndGet());
+					}
+				}, User::getUsername, 10);
+
+		StepVerifier.create(Flux.range(0, 20).flatMap(i -> cache.findById("wwhite").subscribeOn(Schedulers.parallel())))
+				.expectNextCount(20)
+				.verifyComplete();
+		assertThat(backendCalls).hasValue(1);
+	}
+
+	@Test
+	public void leastRecentlyUsedIsEvicted() {
+		CachingReactiveRepository<User> cache = new CachingReactiveRepository<>(backend, User::getUsername, 2);
+
+		cache.findById("wwhite").block();
+		cache.findById("swhite").block();
+		cache.findById("wwhite").block();
+		cache.findById("jpinkman").block();
+
+		assertThat(cache.evictionCount()).isEqualTo(1);
+		assertThat(cache.size()).isEqualTo(2);
+		cache.findById("wwhite").block();
+		assertThat(backendCalls).hasValue(3);
+		cache.findById("swhite").block();
+		assertThat(backendCalls).hasValue(4);
+	}
+
+	@Test
+	public void entriesExpireAfterTtl() {
+		VirtualTimeScheduler clock = VirtualTimeScheduler.create();
+		CachingReactiveRepository<User> cache = new CachingReactiveRepository<>(backend, User::getUsername, 10, Duration.ofSeconds(1), clock);
+
+		cache.findById("wwhite").block();
+		clock.advanceTimeBy(Duration.ofMillis(999));
+		cache.findById("wwhite").block();
+		assertThat(backendCalls).hasValue(1);
+
+		clock.advanceTimeBy(Duration.ofMillis(1));
+		cache.findById("wwhite").block();
+		assertThat(backendCalls).hasValue(2);
+	}
+
+	@Test
+	public void ttlStartsWhenASlowLoadArrives() {
+		VirtualTimeScheduler clock = VirtualTimeScheduler.create();
+		ReactiveUserRepository slowBackend = new ReactiveUserRepository(LatencyModel.constant(Duration.ofSeconds(2)), clock,
+				ReactiveUserRepository.MissBehavior.ERROR, new ConcurrentUserStore(User.WALTER)) {
+			@Override
+			public Mono<User> findById(String username) {
+				return super.findById(username).doOnSubscribe(s -> backendCalls.incrementAndGet());
+			}
+		};
+		CachingReactiveRepository<User> cache = new CachingReactiveRepository<>(slowBackend, User::getUsername, 10, Duration.ofSeconds(1), clock);
+
+		cache.findById("wwhite").subscribe();
+		clock.advanceTimeBy(Duration.ofSeconds(2));
+		// loaded 2s after the miss, still fresh half a second later
+		clock.advanceTimeBy(Duration.ofMillis(500));
+		StepVerifier.create(cache.findById("wwhite"))
+				.expectNext(User.WALTER)
+				.verifyComplete();
+		assertThat(backendCalls).hasValue(1);
+
+		clock.advanceTimeBy(Duration.ofMillis(500));
+		cache.findById("wwhite").subscribe();
+		assertThat(backendCalls).hasValue(2);
+	}
+
+	@Test
+	public void saveInvalidatesAndErrorsAreNotCached() {
+		CachingReactiveRepository<User> cache = new CachingReactiveRepository<>(backend, User::getUsername, 10);
+		User hank = new User("hschrader", "Hank", "Schrader");
+
+		StepVerifier.create(cache.findById("hschrader"))
+				.expectError(UserNotFoundException.class)
+				.verify();
+		assertThat(cache.size()).isZero();
+
+		cache.save(Mono.just(hank)).block();
+		StepVerifier.create(cache.findById("hschrader"))
+				.expectNext(hank)
+				.verifyComplete();
+		assertThat(backendCalls).hasValue(2);
+	}
+}
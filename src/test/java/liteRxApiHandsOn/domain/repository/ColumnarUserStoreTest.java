@@ -0,0 +1,121 @@
+package liteRxApiHandsOn.domain.repository;
+
+import liteRxApiHandsOn.domain.User;
+import org.junit.Test;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ColumnarUserStoreTest {
+
+	@Test
+	public void readersSeeWhatConcurrentWritersAdd() throws InterruptedException {
+		ColumnarUserStore store = new ColumnarUserStore();
+		int writers = 4;
+		int perWriter = 5_000;
+		ExecutorService pool = Executors.newFixedThreadPool(writers + 1);
+		CountDownLatch start = new CountDownLatch(1);
+		for (int w = 0; w < writers; w++) {
+			int writer = w;
+			pool.execute(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				for (int i = 0; i < perWriter; i++) {
+					store.add(new User("user-" + writer + "-" + i, "First" + i % 10, "Last" + i % 100));
+				}
+			});
+		}
+		List<String> readerErrors = new ArrayList<>();
+		pool.execute(() -> {
+			// every row published to a reader is complete
+			while (store.size() < writers * perWriter) {
+				for (User user : store.snapshot()) {
+					if (!user.getFirstname().startsWith("First") || !user.getLastname().startsWith("Last")) {
+						readerErrors.add(user.toString());
+					}
+				}
+			}
+		});
+		start.countDown();
+		pool.shutdown();
+		assertThat(pool.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+		Set<String> usernames = new HashSet<>();
+		for (User user : store.snapshot()) {
+			usernames.add(user.getUsername());
+		}
+		assertThat(readerErrors).isEmpty();
+		assertThat(usernames).hasSize(writers * perWriter);
+		assertThat(store.findByUsername("user-3-4999")).isEqualTo(new User("user-3-4999", "First9", "Last99"));
+	}
+
+	@Test
+	public void snapshotIgnoresLaterWrites() {
+		ColumnarUserStore store = new ColumnarUserStore(User.SKYLER, User.JESSE);
+		Iterable<User> snapshot = store.snapshot();
+
+		store.add(User.WALTER);
+
+		List<User> seen = new ArrayList<>();
+		snapshot.forEach(seen::add);
+		assertThat(seen).containsExactly(User.SKYLER, User.JESSE);
+		assertThat(store.snapshot()).containsExactly(User.SKYLER, User.JESSE, User.WALTER);
+	}
+
+	@Test
+	public void firstUserWithAUsernameWins() {
+		User other = new User("wwhite", "Walter", "Junior");
+		ColumnarUserStore store = new ColumnarUserStore(User.WALTER, other);
+
+		assertThat(store.findByUsername("wwhite")).isEqualTo(User.WALTER);
+		assertThat(store.snapshot()).containsExactly(User.WALTER, other);
+		assertThat(store.page(null, 10)).containsExactly(User.WALTER);
+		assertThat(new ColumnarUserStore().first()).isNull();
+	}
+
+	@Test
+	public void pagesMatchTheConcurrentStore() {
+		ConcurrentUserStore reference = new ConcurrentUserStore();
+		ColumnarUserStore store = new ColumnarUserStore();
+		for (int i = 0; i < 1_000; i++) {
+			User user = new User("user" + (i * 7919 % 1_000), "F", "L" + i);
+			reference.add(user);
+			store.add(user);
+			if (i % 100 == 0) {
+				// pages in between merge the new rows into the sorted ones
+				assertThat(store.page("user5", 5)).isEqualTo(reference.page("user5", 5));
+			}
+		}
+
+		assertThat(store.page(null, 3)).isEqualTo(reference.page(null, 3));
+		assertThat(store.page("user499", 20)).isEqualTo(reference.page("user499", 20));
+		assertThat(store.page("zzz", 20)).isEmpty();
+	}
+
+	@Test
+	public void usersAreMaterialisedOnEmission() {
+		ReactiveUserRepository repository = new ReactiveUserRepository(LatencyModel.none(), Schedulers.immediate(),
+				ReactiveUserRepository.MissBehavior.ERROR, new ColumnarUserStore(User.SKYLER, User.WALTER, User.JESSE));
+
+		StepVerifier.create(repository.findAll())
+				.assertNext(skyler -> assertThat(skyler).isEqualTo(User.SKYLER).isNotSameAs(User.SKYLER))
+				.expectNext(User.WALTER, User.JESSE)
+				.verifyComplete();
+		StepVerifier.create(repository.findById("jpinkman"))
+				.expectNext(User.JESSE)
+				.verifyComplete();
+	}
+}
@@ -0,0 +1,192 @@
+package liteRxApiHandsOn.domain.repository;
+
+import liteRxApiHandsOn.domain.User;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConcurrentUserStoreTest {
+
+	@Test
+	public void concurrentWritersLoseNothing() throws InterruptedException {
+		ConcurrentUserStore store = new ConcurrentUserStore();
+		int writers = 4;
+		int perWriter = 5_000;
+		ExecutorService pool = Executors.newFixedThreadPool(writers);
+		CountDownLatch start = new CountDownLatch(1);
+		for (int w = 0; w < writers; w++) {
+			int writer = w;
+			pool.execute(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				for (int i = 0; i < perWriter; i++) {
+					store.add(new User("user-" + writer + "-" + i, "First", "Last"));
+				}
+			});
+		}
+		start.countDown();
+		pool.shutdown();
+		assertThat(pool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+		Set<String> usernames = new HashSet<>();
+		for (User user : store.snapshot()) {
+			usernames.add(user.getUsername());
+		}
+		assertThat(store.size()).isEqualTo(writers * perWriter);
+		assertThat(usernames).hasSize(writers * perWriter);
+		assertThat(store.findByUsername("user-3-4999")).isNotNull();
+	}
+
+	@Test
+	public void readersIterateWhileWritersAdd() throws InterruptedException {
+		ConcurrentUserStore store = new ConcurrentUserStore();
+		int writers = 4;
+		int perWriter = 5_000;
+		ExecutorService pool = Executors.newFixedThreadPool(writers + 2);
+		CountDownLatch start = new CountDownLatch(1);
+		CountDownLatch written = new CountDownLatch(writers);
+		for (int w = 0; w < writers; w++) {
+			int writer = w;
+			pool.execute(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				for (int i = 0; i < perWriter; i++) {
+					store.add(new User("user-" + writer + "-" + i, "First", "Last"));
+				}
+				written.countDown();
+			});
+		}
+		List<Throwable> readerErrors = new CopyOnWriteArrayList<>();
+		for (int r = 0; r < 2; r++) {
+			pool.execute(() -> {
+				try {
+					start.await();
+					while (written.getCount() > 0) {
+						// what used to throw ConcurrentModificationException in findAll
+						int before = store.size();
+						int seen = 0;
+						for (User user : store.snapshot()) {
+							assertThat(user).isNotNull();
+							seen++;
+						}
+						assertThat(seen).isGreaterThanOrEqualTo(before);
+						assertThat(store.page(null, 100)).isSortedAccordingTo((a, b) -> a.getUsername().compareTo(b.getUsername()));
+					}
+				} catch (Throwable e) {
+					readerErrors.add(e);
+				}
+			});
+		}
+		start.countDown();
+		pool.shutdown();
+		assertThat(pool.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+		assertThat(readerErrors).isEmpty();
+		assertThat(store.snapshot()).hasSize(writers * perWriter);
+	}
+
+	@Test
+	public void concurrentAddsOfOneUsernameKeepTheFirstStored() throws InterruptedException {
+		for (int round = 0; round < 200; round++) {
+			ConcurrentUserStore store = new ConcurrentUserStore();
+			CountDownLatch start = new CountDownLatch(1);
+			List<Thread> threads = new ArrayList<>();
+			for (int t = 0; t < 4; t++) {
+				User user = new User("wwhite", "Walter", "Clone" + t);
+				Thread thread = new Thread(() -> {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					store.add(user);
+				});
+				thread.start();
+				threads.add(thread);
+			}
+			start.countDown();
+			for (Thread thread : threads) {
+				thread.join();
+			}
+
+			User first = store.first();
+			assertThat(store.findByUsername("wwhite")).isSameAs(first);
+			assertThat(store.page(null, 1)).containsExactly(first);
+		}
+	}
+
+	@Test
+	public void snapshotIgnoresLaterWrites() {
+		ConcurrentUserStore store = new ConcurrentUserStore(User.SKYLER, User.JESSE);
+		Iterable<User> snapshot = store.snapshot();
+
+		store.add(User.WALTER);
+
+		List<User> seen = new ArrayList<>();
+		snapshot.forEach(seen::add);
+		assertThat(seen).containsExactly(User.SKYLER, User.JESSE);
+		assertThat(store.snapshot()).containsExactly(User.SKYLER, User.JESSE, User.WALTER);
+	}
+
+	@Test
+	public void firstUserWithAUsernameWins() {
+		User other = new User("wwhite", "Walter", "Junior");
+		ConcurrentUserStore store = new ConcurrentUserStore(User.WALTER, other);
+
+		assertThat(store.findByUsername("wwhite")).isSameAs(User.WALTER);
+		assertThat(store.first()).isSameAs(User.WALTER);
+		assertThat(new ConcurrentUserStore().first()).isNull();
+	}
+
+	@Test
+	public void sortedIndexMatchesTheScanningFallback() {
+		ConcurrentUserStore store = new ConcurrentUserStore(User.WALTER, User.SKYLER, User.SAUL, User.JESSE);
+		UserStore scanning = new UserStore() {
+			@Override
+			public void add(User user) {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public User findByUsername(String username) {
+				return store.findByUsername(username);
+			}
+
+			@Override
+			public User first() {
+				return store.first();
+			}
+
+			@Override
+			public Iterable<User> snapshot() {
+				return store.snapshot();
+			}
+
+			@Override
+			public int size() {
+				return store.size();
+			}
+		};
+
+		assertThat(store.page(null, 3)).containsExactly(User.JESSE, User.SAUL, User.SKYLER);
+		assertThat(store.page("sgoodman", 10)).containsExactly(User.SKYLER, User.WALTER);
+		assertThat(scanning.page(null, 3)).isEqualTo(store.page(null, 3));
+		assertThat(scanning.page("sgoodman", 10)).isEqualTo(store.page("sgoodman", 10));
+	}
+}
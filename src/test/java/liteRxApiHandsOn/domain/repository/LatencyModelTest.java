@@ -0,0 +1,89 @@
+package liteRxApiHandsOn.domain.repository;
+
+import liteRxApiHandsOn.domain.User;
+import org.junit.Test;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LatencyModelTest {
+
+	@Test
+	public void perQueryAndRowCostsQueryPlusRows() {
+		StepVerifier.withVirtualTime(() -> repository(LatencyModel.perQueryAndRow(Duration.ofMillis(50), Duration.ofMillis(10))).findAll())
+				.expectSubscription()
+				.expectNoEvent(Duration.ofMillis(60))
+				.expectNext(User.SKYLER)
+				.thenAwait(Duration.ofMillis(30))
+				.expectNext(User.JESSE, User.WALTER, User.SAUL)
+				.verifyComplete();
+	}
+
+	@Test
+	public void constantIgnoresTheNumberOfRows() {
+		StepVerifier.withVirtualTime(() -> repository(LatencyModel.constant(Duration.ofMillis(50))).findAll())
+				.expectSubscription()
+				.expectNoEvent(Duration.ofMillis(50))
+				.expectNext(User.SKYLER, User.JESSE, User.WALTER, User.SAUL)
+				.verifyComplete();
+	}
+
+	@Test
+	public void stallDelaysUntilItsEnd() {
+		LatencyModel model = LatencyModel.constant(Duration.ofMillis(5)).withStalls(Duration.ofSeconds(1), Duration.ofMillis(200));
+
+		// virtual time starts at 0, inside the first stall
+		StepVerifier.withVirtualTime(() -> repository(model).findFirst())
+				.expectSubscription()
+				.expectNoEvent(Duration.ofMillis(205))
+				.expectNext(User.SKYLER)
+				.verifyComplete();
+		assertThat(model.queryNanos(Duration.ofMillis(500).toNanos())).isEqualTo(Duration.ofMillis(5).toNanos());
+		assertThat(model.queryNanos(Duration.ofMillis(1150).toNanos())).isEqualTo(Duration.ofMillis(55).toNanos());
+	}
+
+	@Test
+	public void logNormalHitsItsMedianAndP99() {
+		LatencyModel model = LatencyModel.logNormal(Duration.ofMillis(5), Duration.ofMillis(100), 42);
+
+		long[] samples = sample(model, 100_000);
+		assertThat(samples[samples.length / 2]).isBetween(Duration.ofMillis(4).toNanos(), Duration.ofMillis(6).toNanos());
+		assertThat(samples[samples.length * 99 / 100]).isBetween(Duration.ofMillis(85).toNanos(), Duration.ofMillis(115).toNanos());
+	}
+
+	@Test
+	public void histogramInterpolatesBetweenQuantiles() {
+		LatencyModel model = LatencyModel.histogram(new double[]{0, 0.5, 0.99, 1},
+				new Duration[]{Duration.ofMillis(2), Duration.ofMillis(5), Duration.ofMillis(80), Duration.ofMillis(400)}, 7);
+
+		long[] samples = sample(model, 100_000);
+		assertThat(samples[0]).isGreaterThanOrEqualTo(Duration.ofMillis(2).toNanos());
+		assertThat(samples[samples.length - 1]).isLessThanOrEqualTo(Duration.ofMillis(400).toNanos());
+		assertThat(samples[samples.length / 2]).isBetween(Duration.ofMillis(4).toNanos(), Duration.ofMillis(6).toNanos());
+		assertThat(samples[samples.length * 99 / 100]).isBetween(Duration.ofMillis(70).toNanos(), Duration.ofMillis(90).toNanos());
+	}
+
+	@Test
+	public void sameSeedSameLatencies() {
+		assertThat(sample(LatencyModel.logNormal(Duration.ofMillis(5), Duration.ofMillis(100), 1), 100))
+				.containsExactly(sample(LatencyModel.logNormal(Duration.ofMillis(5), Duration.ofMillis(100), 1), 100));
+	}
+
+	private static ReactiveUserRepository repository(LatencyModel model) {
+		return new ReactiveUserRepository(model, Schedulers.parallel(), ReactiveUserRepository.MissBehavior.ERROR,
+				new ConcurrentUserStore(User.SKYLER, User.JESSE, User.WALTER, User.SAUL));
+	}
+
+	private static long[] sample(LatencyModel model, int count) {
+		long[] samples = new long[count];
+		for (int i = 0; i < count; i++) {
+			samples[i] = model.queryNanos(0);
+		}
+		Arrays.sort(samples);
+		return samples;
+	}
+}
@@ -0,0 +1,195 @@
+package liteRxApiHandsOn.domain.repository;
+
+import liteRxApiHandsOn.domain.User;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class LogUserStoreTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void savedUsersSurviveARestart() throws IOException {
+		Path directory = folder.getRoot().toPath();
+		try (LogUserStore store = LogUserStore.open(directory)) {
+			ReactiveUserRepository repository =
+					new ReactiveUserRepository(LatencyModel.none(), Schedulers.immediate(), ReactiveUserRepository.MissBehavior.ERROR, store);
+			repository.save(Flux.just(User.SKYLER, User.JESSE)).block();
+			repository.saveAll(Flux.just(User.WALTER, User.SAUL), 10, Duration.ofMinutes(1)).blockLast();
+		}
+
+		try (LogUserStore store = LogUserStore.open(directory)) {
+			assertThat(store.snapshot()).containsExactly(User.SKYLER, User.JESSE, User.WALTER, User.SAUL);
+			assertThat(store.findByUsername("wwhite")).isEqualTo(User.WALTER);
+		}
+	}
+
+	@Test
+	public void defaultRepositoryWiringPersists() throws IOException {
+		Path directory = folder.getRoot().toPath();
+		try (LogUserStore store = LogUserStore.open(directory)) {
+			// latency on Schedulers.parallel(), the fsyncs are offloaded
+			ReactiveUserRepository repository = new ReactiveUserRepository(1, ReactiveUserRepository.MissBehavior.ERROR, store);
+			repository.save(Flux.just(User.SKYLER, User.JESSE)).block();
+			repository.saveAll(Flux.just(User.WALTER, User.SAUL), 10, Duration.ofMillis(10)).blockLast();
+		}
+
+		try (LogUserStore store = LogUserStore.open(directory)) {
+			assertThat(store.snapshot()).containsExactly(User.SKYLER, User.JESSE, User.WALTER, User.SAUL);
+		}
+	}
+
+	@Test
+	public void checkpointReplacesTheSegmentsItCovers() throws IOException {
+		Path directory = folder.getRoot().toPath();
+		try (LogUserStore store = LogUserStore.open(directory, 64, Long.MAX_VALUE)) {
+			store.add(User.SKYLER);
+			store.add(User.JESSE);
+			store.add(User.WALTER);
+			assertThat(files(directory, ".log")).hasSizeGreaterThan(1);
+
+			store.checkpoint();
+			assertThat(files(directory, ".snap")).containsExactly("snapshot-00000000000000000003.snap");
+			assertThat(files(directory, ".log")).containsExactly("segment-00000000000000000003.log");
+
+			store.add(User.SAUL);
+		}
+
+		try (LogUserStore store = LogUserStore.open(directory)) {
+			assertThat(store.snapshot()).containsExactly(User.SKYLER, User.JESSE, User.WALTER, User.SAUL);
+		}
+	}
+
+	@Test
+	public void snapshotsAreTakenInTheBackground() throws Exception {
+		Path directory = folder.getRoot().toPath();
+		try (LogUserStore store = LogUserStore.open(directory, LogUserStore.DEFAULT_SEGMENT_BYTES, 2)) {
+			store.add(User.SKYLER);
+			store.add(User.JESSE);
+			for (int i = 0; i < 100 && files(directory, ".snap").isEmpty(); i++) {
+				Thread.sleep(10);
+			}
+			assertThat(files(directory, ".snap")).containsExactly("snapshot-00000000000000000002.snap");
+		}
+	}
+
+	@Test
+	public void aTornWriteIsCutOffOnReplay() throws IOException {
+		Path directory = folder.getRoot().toPath();
+		try (LogUserStore store = LogUserStore.open(directory)) {
+			store.add(User.SKYLER);
+			store.add(User.JESSE);
+		}
+		Path segment = directory.resolve(files(directory, ".log").get(0));
+		long size = Files.size(segment);
+		try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.APPEND)) {
+			// a length prefix announcing more than what made it to the disk
+			channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 40, 1, 2, 3}));
+		}
+
+		try (LogUserStore store = LogUserStore.open(directory)) {
+			assertThat(store.snapshot()).containsExactly(User.SKYLER, User.JESSE);
+			assertThat(Files.size(segment)).isEqualTo(size);
+			store.add(User.WALTER);
+		}
+		try (LogUserStore store = LogUserStore.open(directory)) {
+			assertThat(store.snapshot()).containsExactly(User.SKYLER, User.JESSE, User.WALTER);
+		}
+	}
+
+	@Test
+	public void aFailedWriteIsNotVisibleAndStopsTheWriters() throws IOException {
+		Path directory = folder.getRoot().toPath();
+		try (LogUserStore store = LogUserStore.open(directory)) {
+			store.add(User.SKYLER);
+
+			// an interrupt closes the channel under the write, the log can not be cut back
+			Thread.currentThread().interrupt();
+			try {
+				assertThatThrownBy(() -> store.add(User.JESSE)).isInstanceOf(UncheckedIOException.class);
+			} finally {
+				Thread.interrupted();
+			}
+
+			assertThat(store.findByUsername("jpinkman")).isNull();
+			assertThatThrownBy(() -> store.add(User.WALTER)).isInstanceOf(IllegalStateException.class);
+			assertThat(store.snapshot()).containsExactly(User.SKYLER);
+		}
+
+		try (LogUserStore store = LogUserStore.open(directory)) {
+			assertThat(store.snapshot()).containsExactly(User.SKYLER);
+			store.add(User.SAUL);
+			assertThat(store.snapshot()).containsExactly(User.SKYLER, User.SAUL);
+		}
+	}
+
+	@Test
+	public void concurrentWritersShareTheirFsyncs() throws Exception {
+		Path directory = folder.getRoot().toPath();
+		int writers = 8;
+		int perWriter = 50;
+		ExecutorService executor = Executors.newFixedThreadPool(writers);
+		try (LogUserStore store = LogUserStore.open(directory)) {
+			CountDownLatch start = new CountDownLatch(1);
+			for (int w = 0; w < writers; w++) {
+				int writer = w;
+				executor.execute(() -> {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					for (int i = 0; i < perWriter; i++) {
+						store.add(new User("user" + writer + "-" + i, "First", "Last"));
+					}
+				});
+			}
+			start.countDown();
+			executor.shutdown();
+			assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+			assertThat(store.syncCount()).isLessThanOrEqualTo(writers * perWriter);
+		}
+
+		try (LogUserStore store = LogUserStore.open(directory)) {
+			assertThat(store.size()).isEqualTo(writers * perWriter);
+			StepVerifier.create(new ReactiveUserRepository(LatencyModel.none(), Schedulers.immediate(),
+							ReactiveUserRepository.MissBehavior.ERROR, store).findById("user7-49"))
+					.expectNext(new User("user7-49", "First", "Last"))
+					.verifyComplete();
+		}
+	}
+
+	private static List<String> files(Path directory, String suffix) throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.map(file -> file.getFileName().toString())
+					.filter(name -> name.endsWith(suffix))
+					.sorted()
+					.collect(Collectors.toList());
+		}
+	}
+}
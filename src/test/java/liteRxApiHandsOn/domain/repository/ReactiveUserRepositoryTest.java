@@ -0,0 +1,170 @@
+package liteRxApiHandsOn.domain.repository;
+
+import liteRxApiHandsOn.domain.User;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReactiveUserRepositoryTest {
+
+	@Test
+	public void findByIdHit() {
+		ReactiveUserRepository repository = new ReactiveUserRepository(0);
+
+		StepVerifier.create(repository.findById("wwhite"))
+				.expectNext(User.WALTER)
+				.verifyComplete();
+	}
+
+	@Test
+	public void findByIdMissIsLazyAndStackless() {
+		ReactiveUserRepository repository = new ReactiveUserRepository(0);
+
+		// nothing happens before subscription
+		Mono<User> miss = repository.findById("unknown");
+
+		StepVerifier.create(miss)
+				.expectErrorSatisfies(e -> {
+					assertThat(e).isInstanceOf(UserNotFoundException.class)
+							.hasMessage("No user with username unknown found!");
+					assertThat(e.getStackTrace()).isEmpty();
+				})
+				.verify();
+	}
+
+	@Test
+	public void findByIdMissAsEmpty() {
+		ReactiveUserRepository repository =
+				new ReactiveUserRepository(0, ReactiveUserRepository.MissBehavior.EMPTY, User.SKYLER);
+
+		StepVerifier.create(repository.findById("jpinkman"))
+				.verifyComplete();
+	}
+
+	@Test
+	public void savedUsersAreIndexed() {
+		ReactiveUserRepository repository = new ReactiveUserRepository(0, User.SKYLER);
+		User hank = new User("hschrader", "Hank", "Schrader");
+
+		StepVerifier.create(repository.save(Mono.just(hank)).then(repository.findById("hschrader")))
+				.expectNext(hank)
+				.verifyComplete();
+	}
+
+	@Test
+	public void saveAllCommitsBySize() {
+		ReactiveUserRepository repository = new ReactiveUserRepository(1, User.SKYLER);
+
+		StepVerifier.create(repository.saveAll(Flux.just(User.JESSE, User.WALTER, User.SAUL), 2, Duration.ofMinutes(1)))
+				.expectNext(new BatchAck(0, 2), new BatchAck(1, 1))
+				.verifyComplete();
+		StepVerifier.create(repository.findAll())
+				.expectNext(User.SKYLER, User.JESSE, User.WALTER, User.SAUL)
+				.verifyComplete();
+	}
+
+	@Test
+	public void saveAllCutsBatchesOnTimeAndPaysTheDelayOncePerBatch() {
+		StepVerifier.withVirtualTime(() -> {
+					ReactiveUserRepository repository = new ReactiveUserRepository(100);
+					Flux<User> slowSource = Flux.just(User.JESSE, User.WALTER)
+							.concatWith(Mono.delay(Duration.ofSeconds(1)).thenReturn(User.SAUL));
+					return repository.saveAll(slowSource, 10, Duration.ofMillis(500));
+				})
+				.thenAwait(Duration.ofMillis(600))
+				.expectNext(new BatchAck(0, 2))
+				.thenAwait(Duration.ofSeconds(1))
+				.expectNext(new BatchAck(1, 1))
+				.verifyComplete();
+	}
+
+	@Test
+	public void keysetPagesAreOrderedByUsername() {
+		ReactiveUserRepository repository = new ReactiveUserRepository(0);
+
+		StepVerifier.create(repository.findAll(null, 2))
+				.expectNext(User.JESSE, User.SAUL)
+				.verifyComplete();
+		StepVerifier.create(repository.findAll("sgoodman", 2))
+				.expectNext(User.SKYLER, User.WALTER)
+				.verifyComplete();
+		StepVerifier.create(repository.findAll("wwhite", 2))
+				.verifyComplete();
+	}
+
+	@Test
+	public void cursorFetchesPagesOnDemand() {
+		AtomicInteger pages = new AtomicInteger();
+		ReactiveUserRepository repository = new ReactiveUserRepository(0) {
+			@Override
+			public Flux<User> findAll(String afterUsername, int limit) {
+				return super.findAll(afterUsername, limit).doOnSubscribe(s -> pages.incrementAndGet());
+			}
+		};
+
+		StepVerifier.create(repository.findAllByCursor(null, 1), 1)
+				.expectNext(User.JESSE)
+				// the page being drained, one buffered, one being fetched
+				.then(() -> assertThat(pages.get()).isLessThanOrEqualTo(3))
+				.thenRequest(Long.MAX_VALUE)
+				.expectNext(User.SAUL, User.SKYLER, User.WALTER)
+				.verifyComplete();
+		assertThat(pages.get()).isEqualTo(5);
+	}
+
+	@Test
+	public void blockingStoresAreWrittenOffTheLatencyScheduler() {
+		List<Boolean> nonBlockingWrites = new CopyOnWriteArrayList<>();
+		UserStore disk = new ConcurrentUserStore() {
+			@Override
+			public boolean blocksOnWrite() {
+				return true;
+			}
+
+			@Override
+			public void add(User user) {
+				nonBlockingWrites.add(Schedulers.isInNonBlockingThread());
+				super.add(user);
+			}
+
+			@Override
+			public void addAll(Collection<User> users) {
+				nonBlockingWrites.add(Schedulers.isInNonBlockingThread());
+				super.addAll(users);
+			}
+		};
+		// the default wiring: the latency is delivered on Schedulers.parallel()
+		ReactiveUserRepository repository = new ReactiveUserRepository(1, ReactiveUserRepository.MissBehavior.ERROR, disk);
+
+		repository.save(Flux.just(User.SKYLER, User.JESSE)).block();
+		repository.saveAll(Flux.just(User.WALTER, User.SAUL), 1, Duration.ofSeconds(1)).blockLast();
+
+		assertThat(nonBlockingWrites).hasSize(4).containsOnly(false);
+		assertThat(disk.snapshot()).containsExactly(User.SKYLER, User.JESSE, User.WALTER, User.SAUL);
+	}
+
+	@Test
+	public void missesAreCountedAsErrors() {
+		ReactiveUserRepository repository = new ReactiveUserRepository(0);
+
+		repository.findById("wwhite").block();
+		StepVerifier.create(repository.findById("unknown"))
+				.expectError(UserNotFoundException.class)
+				.verify();
+
+		MethodMetrics.Snapshot findById = repository.metrics().snapshot().get("findById");
+		assertThat(findById.getCalls()).isEqualTo(2);
+		assertThat(findById.getErrors()).isEqualTo(1);
+		assertThat(findById.getInFlight()).isZero();
+	}
+}
@@ -0,0 +1,70 @@
+package liteRxApiHandsOn.domain.repository;
+
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import java.lang.management.ManagementFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class RepositoryMetricsTest {
+
+	@Test
+	public void histogramPercentilesWithinBucketPrecision() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (long v = 1; v <= 100_000; v++) {
+			histogram.record(v * 1_000);
+		}
+
+		assertThat(histogram.count()).isEqualTo(100_000);
+		assertThat((double) histogram.percentile(50)).isCloseTo(50_000_000, within(50_000_000 * 0.04));
+		assertThat((double) histogram.percentile(99)).isCloseTo(99_000_000, within(99_000_000 * 0.04));
+		assertThat((double) histogram.max()).isCloseTo(100_000_000, within(100_000_000 * 0.04));
+		assertThat(histogram.mean()).isCloseTo(50_000_500, within(1.0));
+	}
+
+	@Test
+	public void bucketsCoverEveryLong() {
+		for (long v : new long[]{0, 1, 63, 64, 65, 1_000_000, Long.MAX_VALUE}) {
+			assertThat(LatencyHistogram.highestEquivalentValue(LatencyHistogram.indexOf(v))).isGreaterThanOrEqualTo(v);
+		}
+	}
+
+	@Test
+	public void timedPublishersCountErrorsAndSettleInFlight() {
+		RepositoryMetrics metrics = new RepositoryMetrics();
+
+		metrics.timed("ok", Flux.range(0, 3)).blockLast();
+		metrics.timed("ko", Mono.error(new IllegalStateException())).onErrorResume(e -> Mono.empty()).block();
+
+		MethodMetrics.Snapshot ok = metrics.snapshot().get("ok");
+		MethodMetrics.Snapshot ko = metrics.snapshot().get("ko");
+		assertThat(ok.getCalls()).isEqualTo(1);
+		assertThat(ok.getInFlight()).isZero();
+		assertThat(ko.getErrors()).isEqualTo(1);
+		assertThat(metrics.getTotalCalls()).isEqualTo(2);
+	}
+
+	@Test
+	public void readableThroughJmx() throws Exception {
+		RepositoryMetrics metrics = new RepositoryMetrics();
+		metrics.timed("findById", Mono.just(1)).block();
+
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = metrics.registerMBean("jmx-test");
+		try {
+			assertThat(server.getAttribute(name, "TotalCalls")).isEqualTo(1L);
+			TabularData methods = (TabularData) server.getAttribute(name, "Methods");
+			CompositeData row = methods.get(new Object[]{"findById"});
+			assertThat(((CompositeData) row.get("value")).get("calls")).isEqualTo(1L);
+		} finally {
+			server.unregisterMBean(name);
+		}
+	}
+}